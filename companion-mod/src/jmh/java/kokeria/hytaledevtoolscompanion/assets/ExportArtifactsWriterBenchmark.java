@@ -0,0 +1,99 @@
+package kokeria.hytaledevtoolscompanion.assets;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.bson.BsonDocument;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import com.hypixel.hytale.assetstore.AssetStore;
+
+import kokeria.hytaledevtoolscompanion.assets.index.BenchmarkIndexExporters;
+import kokeria.hytaledevtoolscompanion.assets.index.IndexShard;
+import kokeria.hytaledevtoolscompanion.assets.index.ShardValues;
+import kokeria.hytaledevtoolscompanion.assets.schema.SchemaExportService;
+import kokeria.hytaledevtoolscompanion.benchmark.BenchmarkFixtures;
+
+/**
+ * A full snapshot write of the bundled schemas and index shards: digesting, encoding, staging and publishing. No
+ * previous manifest is passed, so every artifact is written.
+ * <p>
+ * The shards come from the exporters wherever they can run without a server: commonAssetPaths, localization and
+ * registeredAssets scan a copy of the base game pack rebuilt from the bundled export, and exportFamily shards are
+ * built from the bundled entries the way its exporter builds them. They therefore stream their values like a real
+ * export does. Only the uiDataSet and referenceBundle shards, which their exporters also build as document trees,
+ * are read from the bundled export.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ExportArtifactsWriterBenchmark {
+    private static final List<String> TREE_INDEX_DIRECTORIES = List.of("referenceBundle", "uiDataSet");
+
+    @Param({"json", "bson"})
+    public String artifactFormat;
+
+    private Path workDirectory;
+    private Path outputDirectory;
+    private SchemaExportService.SchemaExportData schemaExportData;
+    private List<IndexShard> indexShards;
+    private ExportManifestService.ExportManifestSnapshot manifestSnapshot;
+
+    @Setup
+    public void setUp() throws IOException {
+        this.workDirectory = Files.createTempDirectory("export-writer-benchmark");
+        this.outputDirectory = this.workDirectory.resolve("export");
+        this.schemaExportData = new SchemaExportService.SchemaExportData(BenchmarkFixtures.schemaDocuments(),
+                new AssetStore<?, ?, ?>[0], Set.of(), Map.of());
+
+        List<ExportManifestService.RuntimePackage> runtimePackages = List.of(
+                BenchmarkFixtures.materializeDefaultPack(this.workDirectory.resolve("pack")));
+        this.indexShards = new ArrayList<>(BenchmarkIndexExporters.packageShards(runtimePackages));
+        for (BsonDocument shard : BenchmarkFixtures.indexDocuments("registeredAssets").values()) {
+            if (shard.isString("path") && shard.isString("extension")) {
+                this.indexShards.add(BenchmarkIndexExporters.handlerBackedShard(runtimePackages,
+                        shard.getString("key").getValue(), shard.getString("path").getValue(),
+                        shard.getString("extension").getValue()));
+            }
+        }
+        for (Map.Entry<String, BsonDocument> file : BenchmarkFixtures.indexDocuments("exportFamily").entrySet()) {
+            this.indexShards.add(BenchmarkIndexExporters.exportFamilyShard(file.getKey(), file.getValue()));
+        }
+        for (String directory : TREE_INDEX_DIRECTORIES) {
+            for (Map.Entry<String, BsonDocument> file : BenchmarkFixtures.indexDocuments(directory).entrySet()) {
+                BsonDocument shard = file.getValue();
+                this.indexShards.add(new IndexShard(directory, file.getKey(), shard.getString("indexKind").getValue(),
+                        shard.getString("key").getValue(), ShardValues.of(shard.get("values")), null, null));
+            }
+        }
+        this.manifestSnapshot = ExportManifestService.createSnapshot("benchmark", 1,
+                ExportArtifactFormat.fromId(this.artifactFormat), false, false, false, false, false, "", List.of(),
+                null);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        BenchmarkFixtures.deleteRecursively(this.workDirectory);
+    }
+
+    @Benchmark
+    public List<ArtifactWriteStage.WrittenArtifact> writeSnapshot() throws IOException {
+        return ExportArtifactsWriter.write(this.outputDirectory, this.schemaExportData, Map.of(),
+                sink -> this.indexShards.forEach(sink), this.manifestSnapshot, null, 8, 64L * 1024L * 1024L,
+                new ExportStats());
+    }
+}
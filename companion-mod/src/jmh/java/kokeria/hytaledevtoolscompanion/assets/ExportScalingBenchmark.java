@@ -0,0 +1,152 @@
+package kokeria.hytaledevtoolscompanion.assets;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.IterationParams;
+import org.openjdk.jmh.runner.IterationType;
+
+import com.hypixel.hytale.assetstore.AssetStore;
+
+import kokeria.hytaledevtoolscompanion.assets.index.BenchmarkIndexExporters;
+import kokeria.hytaledevtoolscompanion.assets.index.IndexExportCoordinator;
+import kokeria.hytaledevtoolscompanion.assets.schema.SchemaExportService;
+import kokeria.hytaledevtoolscompanion.benchmark.BenchmarkFixtures;
+import kokeria.hytaledevtoolscompanion.benchmark.SyntheticPackGenerator;
+
+/**
+ * Export time and peak heap as the number and size of packs grow. Each invocation does what an export does with the
+ * package files: catalog and fingerprint every pack, run the index exporters, and write the snapshot. There are no
+ * asset stores or schemas, so only the package-driven work is measured.
+ * <p>
+ * The peak heap of an invocation is the sum of the peak usage of every heap pool during it, an upper bound on the
+ * true peak. JMH would sum such a counter across iterations, so the benchmark keeps the largest peak of the
+ * measurement invocations itself and prints it with the parameters when the trial ends. Comparing it and the time
+ * across {@code packs} and {@code commonFilesPerPack} shows whether an exporter grows faster than the input.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+public class ExportScalingBenchmark {
+    private static final String HANDLER_TYPE = "SyntheticAsset";
+
+    @Param({"1", "10", "40"})
+    public int packs;
+
+    @Param({"2000", "20000"})
+    public int commonFilesPerPack;
+
+    @Param({"false", "true"})
+    public boolean zipped;
+
+    private SyntheticPackGenerator generator;
+    private List<SyntheticPackGenerator.GeneratedPack> generatedPacks;
+    private Path outputDirectory;
+    private SchemaExportService.SchemaExportData schemaExportData;
+    private boolean measuring;
+    private long maxPeakHeapBytes;
+    private int measuredInvocations;
+
+    @Setup(Level.Trial)
+    public void generatePacks() throws IOException {
+        Path workDirectory = Files.createTempDirectory("export-scaling-benchmark");
+        this.generator = new SyntheticPackGenerator(workDirectory.resolve("packs"));
+        this.generatedPacks = new ArrayList<>();
+        for (int i = 0; i < this.packs; i++) {
+            this.generatedPacks.add(this.generator.generate(String.format("Pack%02d", i),
+                    SyntheticPackGenerator.PackShape.scaled(this.commonFilesPerPack), this.zipped));
+        }
+        this.outputDirectory = workDirectory.resolve("export");
+        this.schemaExportData = new SchemaExportService.SchemaExportData(Map.of(), new AssetStore<?, ?, ?>[0],
+                Set.of(), Map.of());
+    }
+
+    @TearDown(Level.Trial)
+    public void deletePacks() throws IOException {
+        System.out.printf("%nPeak heap with packs=%d, commonFilesPerPack=%d, zipped=%b: %d MB (largest of %d measured "
+                        + "invocations)%n",
+                this.packs, this.commonFilesPerPack, this.zipped, this.maxPeakHeapBytes / (1024L * 1024L),
+                this.measuredInvocations);
+        Path workDirectory = this.outputDirectory.getParent();
+        this.generator.close();
+        BenchmarkFixtures.deleteRecursively(workDirectory);
+    }
+
+    @Setup(Level.Iteration)
+    public void startIteration(IterationParams iteration) {
+        this.measuring = iteration.getType() == IterationType.MEASUREMENT;
+    }
+
+    @Setup(Level.Invocation)
+    public void resetHeapPeaks() {
+        System.gc();
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                pool.resetPeakUsage();
+            }
+        }
+    }
+
+    @Benchmark
+    public List<ArtifactWriteStage.WrittenArtifact> export() throws IOException {
+        List<ExportManifestService.RuntimePackage> runtimePackages = new ArrayList<>();
+        for (SyntheticPackGenerator.GeneratedPack pack : this.generatedPacks) {
+            PackageFileCatalog files = pack.catalog();
+            runtimePackages.add(new ExportManifestService.RuntimePackage(pack.name(), "1.0.0",
+                    pack.packLocation().toString(), pack.root(), PackageFingerprints.fingerprint(files), files));
+        }
+
+        ExportStats stats = new ExportStats();
+        ExportManifestService.ExportManifestSnapshot manifestSnapshot = ExportManifestService.createSnapshot(
+                "benchmark", 1, ExportArtifactFormat.JSON, false, false, false, false, false, "", runtimePackages,
+                null);
+        List<ArtifactWriteStage.WrittenArtifact> written = ExportArtifactsWriter.write(this.outputDirectory,
+                this.schemaExportData, Map.of(), sink -> {
+                    IndexExportCoordinator.build(this.schemaExportData, runtimePackages, true, false, false, stats,
+                            sink);
+                    sink.accept(BenchmarkIndexExporters.handlerBackedShard(runtimePackages, HANDLER_TYPE,
+                            SyntheticPackGenerator.HANDLER_ASSET_PATH,
+                            SyntheticPackGenerator.HANDLER_ASSET_EXTENSION));
+                }, manifestSnapshot, null, 8, 64L * 1024L * 1024L, stats);
+        recordPeakHeap();
+        return written;
+    }
+
+    private void recordPeakHeap() {
+        if (!this.measuring) {
+            return;
+        }
+
+        long peakBytes = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                peakBytes += pool.getPeakUsage().getUsed();
+            }
+        }
+        this.maxPeakHeapBytes = Math.max(this.maxPeakHeapBytes, peakBytes);
+        this.measuredInvocations++;
+    }
+}
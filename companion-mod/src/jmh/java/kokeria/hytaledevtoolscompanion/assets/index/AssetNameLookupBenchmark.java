@@ -0,0 +1,83 @@
+package kokeria.hytaledevtoolscompanion.assets.index;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Compares {@link AssetNameLookup} queries with the linear scan an autocomplete would otherwise run over a
+ * registeredAssets shard. Names are synthetic texture-like paths.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class AssetNameLookupBenchmark {
+    private static final String[] DIRECTORIES = {"BlockTextures", "Items", "Characters", "NPC", "Particles", "UI"};
+    private static final String[] WORDS = {"Stone", "Wood", "Brick", "Runic", "Dark", "Light", "Iron", "Crystal",
+            "Plank", "Ore", "Leaf", "Sand", "Glass", "Moss", "Copper", "Gold"};
+    private static final int LIMIT = 50;
+
+    @Param({"1000", "30000"})
+    public int assetCount;
+
+    private List<String> names;
+    private AssetNameLookup lookup;
+    private String prefix;
+    private String substring;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        this.names = new ArrayList<>(this.assetCount);
+        for (int i = 0; i < this.assetCount; i++) {
+            this.names.add(DIRECTORIES[random.nextInt(DIRECTORIES.length)] + "/"
+                    + WORDS[random.nextInt(WORDS.length)] + "_" + WORDS[random.nextInt(WORDS.length)] + "_" + i);
+        }
+        this.lookup = AssetNameLookup.build(this.names);
+        this.prefix = "blocktextures/runic_d";
+        this.substring = "brick_moss";
+    }
+
+    @Benchmark
+    public List<String> prefixLookup() {
+        return this.lookup.findByPrefix(this.prefix, LIMIT);
+    }
+
+    @Benchmark
+    public List<String> prefixScan() {
+        List<String> result = new ArrayList<>();
+        for (String name : this.names) {
+            if (name.toLowerCase(Locale.ROOT).startsWith(this.prefix) && result.size() < LIMIT) {
+                result.add(name);
+            }
+        }
+        return result;
+    }
+
+    @Benchmark
+    public List<String> substringLookup() {
+        return this.lookup.findBySubstring(this.substring, LIMIT);
+    }
+
+    @Benchmark
+    public List<String> substringScan() {
+        List<String> result = new ArrayList<>();
+        for (String name : this.names) {
+            if (name.toLowerCase(Locale.ROOT).contains(this.substring) && result.size() < LIMIT) {
+                result.add(name);
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,70 @@
+package kokeria.hytaledevtoolscompanion.assets.index;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import org.bson.BsonDocument;
+import org.bson.BsonValue;
+
+import kokeria.hytaledevtoolscompanion.assets.ExportManifestService;
+
+/** Package-private exporter steps for benchmarks outside this package. */
+public final class BenchmarkIndexExporters {
+    private BenchmarkIndexExporters() {
+    }
+
+    /**
+     * The registeredAssets shard a handler-backed asset type with the given path and extension gets. The server only
+     * runs this scan for handlers registered with the asset editor, which benchmarks have none of.
+     */
+    @Nonnull
+    public static IndexShard handlerBackedShard(
+            @Nonnull List<ExportManifestService.RuntimePackage> runtimePackages,
+            @Nonnull String type,
+            @Nonnull String path,
+            @Nonnull String extension) {
+        List<AssetSourceEntry> entries = new ArrayList<>();
+        for (ExportManifestService.RuntimePackage runtimePackage : runtimePackages) {
+            RegisteredAssetIndexExporter.collectHandlerFiles(runtimePackage, path, extension, entries);
+        }
+        entries.sort(Comparator.comparing(AssetSourceEntry::name));
+        return new IndexShard("registeredAssets", type + ".json", "registeredAssets", type,
+                ShardValues.assetEntries(entries), path, extension);
+    }
+
+    /** The shards of the exporters that only read package files: commonAssetPaths and per-locale localization. */
+    @Nonnull
+    public static List<IndexShard> packageShards(@Nonnull List<ExportManifestService.RuntimePackage> runtimePackages) {
+        List<IndexShard> shards = new ArrayList<>();
+        shards.add(CommonAssetPathIndexExporter.build(runtimePackages));
+        shards.addAll(LocalizationIndexExporter.build(runtimePackages, false, false));
+        return shards;
+    }
+
+    /**
+     * The exportFamily shard {@link GeneratorIndexExporter} builds for the entries of an exported exportFamily
+     * shard. The exporter itself reads asset stores, which benchmarks have none of.
+     */
+    @Nonnull
+    public static IndexShard exportFamilyShard(@Nonnull String fileName, @Nonnull BsonDocument exportedShard) {
+        List<AssetSourceEntry> entries = new ArrayList<>();
+        for (Map.Entry<String, BsonValue> entry : exportedShard.getDocument("values").entrySet()) {
+            BsonDocument value = entry.getValue().asDocument();
+            entries.add(new AssetSourceEntry(entry.getKey(), stringOrNull(value.get("sourcedFromFile")),
+                    stringOrNull(value.get("package"))));
+        }
+        entries.sort(Comparator.comparing(AssetSourceEntry::name));
+        return new IndexShard("exportFamily", fileName, "exportFamily", exportedShard.getString("key").getValue(),
+                ShardValues.assetEntries(entries), null, null);
+    }
+
+    @Nullable
+    private static String stringOrNull(@Nullable BsonValue value) {
+        return value != null && value.isString() ? value.asString().getValue() : null;
+    }
+}
@@ -0,0 +1,80 @@
+package kokeria.hytaledevtoolscompanion.assets.index;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.bson.BsonDocument;
+import org.bson.json.JsonWriter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import kokeria.hytaledevtoolscompanion.assets.ExportArtifactReader;
+
+/**
+ * Cost of opening a registeredAssets shard and answering one lookup from it, as a freshly started index consumer
+ * would: parsing the JSON shard versus memory mapping its {@link BinaryAssetIndex}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class BinaryAssetIndexBenchmark {
+    @Param({"1000", "30000"})
+    public int assetCount;
+
+    private Path directory;
+    private Path jsonFile;
+    private Path binaryFile;
+    private String probe;
+
+    @Setup
+    public void setUp() throws IOException {
+        List<AssetSourceEntry> entries = new ArrayList<>(this.assetCount);
+        for (int i = 0; i < this.assetCount; i++) {
+            String name = "BlockTextures/Asset_" + i;
+            entries.add(new AssetSourceEntry(name, "Common/" + name + ".png", "Hytale:Hytale"));
+        }
+        entries.sort(Comparator.comparing(AssetSourceEntry::name));
+        IndexShard shard = new IndexShard("registeredAssets", "Texture.json", "registeredAssets", "Texture",
+                ShardValues.assetEntries(entries), "Common", ".png");
+
+        this.directory = Files.createTempDirectory("binary-asset-index");
+        this.jsonFile = this.directory.resolve("Texture.json");
+        try (Writer writer = Files.newBufferedWriter(this.jsonFile, StandardCharsets.UTF_8)) {
+            shard.write(new JsonWriter(writer), "benchmark", null);
+        }
+        this.binaryFile = this.directory.resolve("Texture" + BinaryAssetIndex.FILE_EXTENSION);
+        Files.write(this.binaryFile, shard.toBinaryIndex("benchmark"));
+        this.probe = entries.get(entries.size() / 3).name();
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(this.jsonFile);
+        Files.deleteIfExists(this.binaryFile);
+        Files.deleteIfExists(this.directory);
+    }
+
+    @Benchmark
+    public BsonDocument jsonShardLookup() throws IOException {
+        return ExportArtifactReader.readDocument(this.jsonFile).getDocument("values").getDocument(this.probe);
+    }
+
+    @Benchmark
+    public AssetSourceEntry binaryIndexLookup() throws IOException {
+        return BinaryAssetIndex.open(this.binaryFile).find(this.probe);
+    }
+}
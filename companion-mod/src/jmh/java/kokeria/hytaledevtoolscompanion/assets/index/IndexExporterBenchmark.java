@@ -0,0 +1,109 @@
+package kokeria.hytaledevtoolscompanion.assets.index;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.bson.BsonDocument;
+import org.bson.BsonValue;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import kokeria.hytaledevtoolscompanion.assets.ExportManifestService;
+import kokeria.hytaledevtoolscompanion.benchmark.BenchmarkFixtures;
+
+/**
+ * Index exporters that only read package files, run against a recreation of the base game pack. The
+ * registeredAssets shard used for {@link IndexShard#toBsonDocument} is Texture, the largest one.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class IndexExporterBenchmark {
+    private Path packRoot;
+    private List<ExportManifestService.RuntimePackage> runtimePackages;
+    private List<HandlerType> handlerTypes;
+    private IndexShard largestShard;
+
+    @Setup
+    public void setUp() throws IOException {
+        this.packRoot = Files.createTempDirectory("index-exporter-benchmark");
+        this.runtimePackages = List.of(BenchmarkFixtures.materializeDefaultPack(this.packRoot));
+
+        this.handlerTypes = new ArrayList<>();
+        for (BsonDocument shard : BenchmarkFixtures.indexDocuments("registeredAssets").values()) {
+            if (shard.isString("path") && shard.isString("extension") && hasPackRelativeSources(shard)) {
+                this.handlerTypes.add(new HandlerType(shard.getString("path").getValue(),
+                        shard.getString("extension").getValue()));
+            }
+        }
+
+        List<AssetSourceEntry> entries = new ArrayList<>();
+        RegisteredAssetIndexExporter.collectHandlerFiles(this.runtimePackages.get(0), "Common", ".png", entries);
+        entries.sort(Comparator.comparing(AssetSourceEntry::name));
+        this.largestShard = new IndexShard("registeredAssets", "Texture.json", "registeredAssets", "Texture",
+                ShardValues.assetEntries(entries), "Common", ".png");
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        BenchmarkFixtures.deleteRecursively(this.packRoot);
+    }
+
+    @Benchmark
+    public IndexShard commonAssetPaths() {
+        return CommonAssetPathIndexExporter.build(this.runtimePackages);
+    }
+
+    @Benchmark
+    public List<AssetSourceEntry> handlerBackedRegisteredAssets() {
+        List<AssetSourceEntry> entries = new ArrayList<>();
+        for (HandlerType handlerType : this.handlerTypes) {
+            for (ExportManifestService.RuntimePackage runtimePackage : this.runtimePackages) {
+                RegisteredAssetIndexExporter.collectHandlerFiles(runtimePackage, handlerType.path(),
+                        handlerType.extension(), entries);
+            }
+        }
+        return entries;
+    }
+
+    @Benchmark
+    public List<IndexShard> localizationSequential() {
+        return LocalizationIndexExporter.build(this.runtimePackages, false, false);
+    }
+
+    @Benchmark
+    public List<IndexShard> localizationConcurrent() {
+        return LocalizationIndexExporter.build(this.runtimePackages, true, false);
+    }
+
+    @Benchmark
+    public BsonDocument shardToBsonDocument() {
+        return this.largestShard.toBsonDocument("benchmark", "benchmark");
+    }
+
+    /** Handler-backed types list their sources relative to the pack; store-backed ones are rooted at it. */
+    private static boolean hasPackRelativeSources(BsonDocument shard) {
+        for (BsonValue entry : shard.getDocument("values").values()) {
+            BsonValue sourcedFromFile = entry.asDocument().get("sourcedFromFile");
+            if (sourcedFromFile != null && sourcedFromFile.isString()
+                    && BenchmarkFixtures.isPackRelative(sourcedFromFile.asString().getValue())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private record HandlerType(String path, String extension) {
+    }
+}
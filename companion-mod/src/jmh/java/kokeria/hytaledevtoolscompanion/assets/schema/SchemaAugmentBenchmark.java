@@ -0,0 +1,48 @@
+package kokeria.hytaledevtoolscompanion.assets.schema;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.bson.BsonDocument;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.hypixel.hytale.assetstore.AssetStore;
+
+import kokeria.hytaledevtoolscompanion.benchmark.BenchmarkFixtures;
+
+/**
+ * Metadata augmentation and uiDataSet discovery over the bundled schemas. Augmenting rewrites the documents in
+ * place, so every invocation gets a fresh copy.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class SchemaAugmentBenchmark {
+    private Map<String, BsonDocument> fixtureDocuments;
+    private Map<String, BsonDocument> schemaDocuments;
+
+    @Setup(Level.Trial)
+    public void loadFixtures() throws IOException {
+        this.fixtureDocuments = BenchmarkFixtures.schemaDocuments();
+    }
+
+    @Setup(Level.Invocation)
+    public void copyFixtures() {
+        this.schemaDocuments = BenchmarkFixtures.deepCopy(this.fixtureDocuments);
+    }
+
+    @Benchmark
+    public SchemaExportService.SchemaExportData augment() {
+        return SchemaExportService.augment(new SchemaExportService.SchemaExportData(this.schemaDocuments,
+                new AssetStore<?, ?, ?>[0], Set.of(), Map.of()));
+    }
+}
@@ -0,0 +1,178 @@
+package kokeria.hytaledevtoolscompanion.benchmark;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.stream.Stream;
+
+import javax.annotation.Nonnull;
+
+import org.bson.BsonDocument;
+import org.bson.BsonValue;
+
+import kokeria.hytaledevtoolscompanion.assets.ExportManifestService;
+import kokeria.hytaledevtoolscompanion.assets.PackageFileCatalog;
+
+/**
+ * Fixtures derived from the export bundled under {@code default-data/export-data}, so benchmarks run against the
+ * shape of the real base game without a server. The export directory is taken from the
+ * {@value #DEFAULT_DATA_PROPERTY} system property, which the jmh task sets.
+ */
+public final class BenchmarkFixtures {
+    public static final String DEFAULT_DATA_PROPERTY = "hytaledevtools.defaultData";
+    public static final String PACKAGE_NAME = "Hytale:Hytale";
+
+    private BenchmarkFixtures() {
+    }
+
+    @Nonnull
+    public static Path defaultExportData() {
+        Path directory = Path.of(System.getProperty(DEFAULT_DATA_PROPERTY, "../default-data/export-data"));
+        if (!Files.isDirectory(directory)) {
+            throw new IllegalStateException("Bundled default data not found at " + directory.toAbsolutePath());
+        }
+        return directory;
+    }
+
+    /** Every exported schema document, keyed by file name as {@code SchemaExportService} produces them. */
+    @Nonnull
+    public static Map<String, BsonDocument> schemaDocuments() throws IOException {
+        Map<String, BsonDocument> schemaDocuments = new TreeMap<>();
+        for (Path file : listJsonFiles(defaultExportData().resolve("schemas"))) {
+            schemaDocuments.put(file.getFileName().toString(), readDocument(file));
+        }
+        return schemaDocuments;
+    }
+
+    @Nonnull
+    public static Map<String, BsonDocument> deepCopy(@Nonnull Map<String, BsonDocument> documents) {
+        Map<String, BsonDocument> copy = new TreeMap<>();
+        documents.forEach((key, document) -> copy.put(key, document.clone()));
+        return copy;
+    }
+
+    /** Exported index shard documents under {@code indexes/<directory>}, keyed by file name. */
+    @Nonnull
+    public static Map<String, BsonDocument> indexDocuments(@Nonnull String directory) throws IOException {
+        Map<String, BsonDocument> documents = new TreeMap<>();
+        for (Path file : listJsonFiles(defaultExportData().resolve("indexes").resolve(directory))) {
+            documents.put(file.getFileName().toString(), readDocument(file));
+        }
+        return documents;
+    }
+
+    /**
+     * Recreates the file layout of the base game pack under {@code root}: every file listed in the commonAssetPaths
+     * index and every registeredAssets source as an empty file, plus {@code .lang} files holding the exported
+     * translations.
+     */
+    @Nonnull
+    public static ExportManifestService.RuntimePackage materializeDefaultPack(@Nonnull Path root) throws IOException {
+        Set<String> files = new TreeSet<>();
+        for (BsonDocument shard : indexDocuments("commonAssetPaths").values()) {
+            for (Map.Entry<String, BsonValue> folder : shard.getDocument("values").entrySet()) {
+                String prefix = ".".equals(folder.getKey()) ? "Common/" : "Common/" + folder.getKey() + "/";
+                for (BsonValue fileNames : folder.getValue().asDocument().values()) {
+                    fileNames.asArray().forEach(fileName -> files.add(prefix + fileName.asString().getValue()));
+                }
+            }
+        }
+        for (BsonDocument shard : indexDocuments("registeredAssets").values()) {
+            for (BsonValue entry : shard.getDocument("values").values()) {
+                BsonValue sourcedFromFile = entry.asDocument().get("sourcedFromFile");
+                if (sourcedFromFile == null || !sourcedFromFile.isString()) {
+                    continue;
+                }
+                // Store-backed sources are rooted at the pack, e.g. /Server/Item/Items/...
+                String file = sourcedFromFile.asString().getValue();
+                file = file.startsWith("/") ? file.substring(1) : file;
+                if (isPackRelative(file)) {
+                    files.add(file);
+                }
+            }
+        }
+
+        for (String file : files) {
+            Path path = root.resolve(file);
+            Files.createDirectories(path.getParent());
+            if (!Files.exists(path)) {
+                Files.createFile(path);
+            }
+        }
+        writeLanguageFiles(root.resolve("Server").resolve("Languages"));
+        return runtimePackage(root);
+    }
+
+    @Nonnull
+    public static ExportManifestService.RuntimePackage runtimePackage(@Nonnull Path root) {
+        return new ExportManifestService.RuntimePackage(PACKAGE_NAME, "benchmark", root.toString(), root, "",
+                PackageFileCatalog.of(root));
+    }
+
+    public static void deleteRecursively(@Nonnull Path directory) throws IOException {
+        if (!Files.exists(directory)) {
+            return;
+        }
+        try (Stream<Path> stream = Files.walk(directory)) {
+            for (Path path : stream.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+
+    /**
+     * Writes each exported locale back as one {@code .lang} file per first key segment, so parsing them yields the
+     * exported keys again. The fallback locale lives directly under {@code Languages}.
+     */
+    private static void writeLanguageFiles(@Nonnull Path languagesDirectory) throws IOException {
+        for (BsonDocument shard : indexDocuments("localization").values()) {
+            String locale = shard.getString("key").getValue();
+            Path localeDirectory = "fallback".equals(locale) ? languagesDirectory : languagesDirectory.resolve(locale);
+            Map<String, StringBuilder> contentByFile = new LinkedHashMap<>();
+            for (Map.Entry<String, BsonValue> entry : shard.getDocument("values").entrySet()) {
+                int dot = entry.getKey().indexOf('.');
+                if (dot <= 0 || !entry.getValue().isString()) {
+                    continue;
+                }
+                contentByFile.computeIfAbsent(entry.getKey().substring(0, dot), ignored -> new StringBuilder())
+                        .append(entry.getKey(), dot + 1, entry.getKey().length())
+                        .append(" = ")
+                        .append(entry.getValue().asString().getValue().replace('\n', ' ').replace('\r', ' '))
+                        .append('\n');
+            }
+
+            Files.createDirectories(localeDirectory);
+            for (Map.Entry<String, StringBuilder> file : contentByFile.entrySet()) {
+                try (Writer writer = Files.newBufferedWriter(localeDirectory.resolve(file.getKey() + ".lang"),
+                        StandardCharsets.UTF_8)) {
+                    writer.append(file.getValue());
+                }
+            }
+        }
+    }
+
+    public static boolean isPackRelative(@Nonnull String sourcedFromFile) {
+        return sourcedFromFile.startsWith("Common/") || sourcedFromFile.startsWith("Server/");
+    }
+
+    @Nonnull
+    private static List<Path> listJsonFiles(@Nonnull Path directory) throws IOException {
+        try (Stream<Path> stream = Files.list(directory)) {
+            return stream.filter(file -> file.getFileName().toString().endsWith(".json")).sorted().toList();
+        }
+    }
+
+    @Nonnull
+    private static BsonDocument readDocument(@Nonnull Path file) throws IOException {
+        return BsonDocument.parse(Files.readString(file));
+    }
+}
@@ -0,0 +1,145 @@
+package kokeria.hytaledevtoolscompanion.benchmark;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import javax.annotation.Nonnull;
+
+import kokeria.hytaledevtoolscompanion.assets.PackageFileCatalog;
+
+/**
+ * Generates synthetic asset packs under a work directory, either as plain directories or as zip archives opened
+ * through a zip file system the way the server mounts {@code Assets.zip}. Every pack holds:
+ * <ul>
+ * <li>{@link PackShape#commonFiles()} empty files under {@code Common/}, {@value #FILES_PER_DIRECTORY} per folder</li>
+ * <li>{@link PackShape#langFiles()} {@code .lang} files of {@value #KEYS_PER_LANG_FILE} keys each, spread evenly over
+ * {@link PackShape#locales()} locales so every locale defines the same keys</li>
+ * <li>{@link PackShape#handlerAssets()} small files under {@value #HANDLER_ASSET_PATH} with extension
+ * {@value #HANDLER_ASSET_EXTENSION}, for the handler-backed registered asset scan</li>
+ * </ul>
+ * Paths include the pack name, so packs add files rather than shadow each other. Closing the generator closes the zip
+ * file systems and deletes the work directory.
+ */
+public final class SyntheticPackGenerator implements AutoCloseable {
+    public static final String HANDLER_ASSET_PATH = "Server/SyntheticAssets";
+    public static final String HANDLER_ASSET_EXTENSION = ".json";
+    private static final String[] COMMON_EXTENSIONS = {"png", "blockymodel", "blockyanim", "ogg"};
+    private static final int FILES_PER_DIRECTORY = 64;
+    private static final int KEYS_PER_LANG_FILE = 40;
+    private static final byte[] EMPTY = new byte[0];
+    private static final byte[] EMPTY_ASSET = "{}".getBytes(StandardCharsets.UTF_8);
+
+    private final Path workDirectory;
+    private final List<FileSystem> fileSystems = new ArrayList<>();
+
+    public SyntheticPackGenerator(@Nonnull Path workDirectory) {
+        this.workDirectory = workDirectory;
+    }
+
+    @Nonnull
+    public GeneratedPack generate(@Nonnull String name, @Nonnull PackShape shape, boolean zipped) throws IOException {
+        Files.createDirectories(this.workDirectory);
+        if (!zipped) {
+            Path root = this.workDirectory.resolve(name);
+            writeFiles(name, shape, (relativePath, content) -> {
+                Path file = root.resolve(relativePath);
+                Files.createDirectories(file.getParent());
+                Files.write(file, content);
+            });
+            return new GeneratedPack(name, root, root);
+        }
+
+        Path archive = this.workDirectory.resolve(name + ".zip");
+        try (ZipOutputStream zip = new ZipOutputStream(new BufferedOutputStream(Files.newOutputStream(archive)))) {
+            writeFiles(name, shape, (relativePath, content) -> {
+                zip.putNextEntry(new ZipEntry(relativePath));
+                zip.write(content);
+                zip.closeEntry();
+            });
+        }
+        FileSystem fileSystem = FileSystems.newFileSystem(archive);
+        this.fileSystems.add(fileSystem);
+        return new GeneratedPack(name, fileSystem.getPath("/"), archive);
+    }
+
+    @Override
+    public void close() throws IOException {
+        for (FileSystem fileSystem : this.fileSystems) {
+            fileSystem.close();
+        }
+        this.fileSystems.clear();
+        BenchmarkFixtures.deleteRecursively(this.workDirectory);
+    }
+
+    private static void writeFiles(@Nonnull String name, @Nonnull PackShape shape, @Nonnull FileSink sink)
+            throws IOException {
+        for (int i = 0; i < shape.commonFiles(); i++) {
+            int directory = i / FILES_PER_DIRECTORY;
+            sink.put("Common/Synthetic/" + name + "/Group_" + directory / 16 + "/Set_" + directory + "/Asset_" + i
+                    + "." + COMMON_EXTENSIONS[i % COMMON_EXTENSIONS.length], EMPTY);
+        }
+
+        String filePrefix = name.toLowerCase(Locale.ROOT);
+        for (int i = 0; i < shape.langFiles(); i++) {
+            int locale = i % shape.locales();
+            int file = i / shape.locales();
+            StringBuilder content = new StringBuilder();
+            content.append("# Synthetic translations\n");
+            for (int key = 0; key < KEYS_PER_LANG_FILE; key++) {
+                content.append("entries.key_").append(key).append(" = Translation ").append(key).append(" of file ")
+                        .append(file).append(" in locale ").append(locale).append('\n');
+            }
+            sink.put("Server/Languages/" + localeName(locale) + "/" + filePrefix + "_" + file + ".lang",
+                    content.toString().getBytes(StandardCharsets.UTF_8));
+        }
+
+        for (int i = 0; i < shape.handlerAssets(); i++) {
+            sink.put(HANDLER_ASSET_PATH + "/" + name + "/Group_" + i / FILES_PER_DIRECTORY + "/Asset_" + i
+                    + HANDLER_ASSET_EXTENSION, EMPTY_ASSET);
+        }
+    }
+
+    @Nonnull
+    private static String localeName(int locale) {
+        return locale == 0 ? "en-US" : String.format(Locale.ROOT, "x%d-XX", locale);
+    }
+
+    @FunctionalInterface
+    private interface FileSink {
+        void put(@Nonnull String relativePath, @Nonnull byte[] content) throws IOException;
+    }
+
+    /** How many files of each kind a generated pack holds. */
+    public record PackShape(int commonFiles, int langFiles, int locales, int handlerAssets) {
+        public PackShape {
+            if (locales < 1) {
+                throw new IllegalArgumentException("A pack needs at least one locale");
+            }
+        }
+
+        /** A pack with {@code commonFiles} Common files and proportionate translations and handler assets. */
+        @Nonnull
+        public static PackShape scaled(int commonFiles) {
+            return new PackShape(commonFiles, Math.max(4, commonFiles / 50), 4, commonFiles / 4);
+        }
+    }
+
+    /** A generated pack. For zipped packs {@code root} lives in the archive's zip file system. */
+    public record GeneratedPack(@Nonnull String name, @Nonnull Path root, @Nonnull Path packLocation) {
+        /** A fresh, not yet scanned catalog, as the server builds for every export. */
+        @Nonnull
+        public PackageFileCatalog catalog() {
+            return PackageFileCatalog.of(this.root, this.packLocation);
+        }
+    }
+}
@@ -5,12 +5,15 @@ import java.nio.file.Path;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 
+import com.hypixel.hytale.assetstore.event.LoadedAssetsEvent;
+import com.hypixel.hytale.assetstore.event.RemovedAssetsEvent;
 import com.hypixel.hytale.server.core.event.events.BootEvent;
 import com.hypixel.hytale.server.core.plugin.JavaPlugin;
 import com.hypixel.hytale.server.core.plugin.JavaPluginInit;
 import com.hypixel.hytale.server.core.util.Config;
 
 import kokeria.hytaledevtoolscompanion.assets.CompanionDataExportService;
+import kokeria.hytaledevtoolscompanion.assets.LiveExportScheduler;
 import kokeria.hytaledevtoolscompanion.config.HytaleDevtoolsCompanionConfig;
 
 public class HytaleDevtoolsCompanion extends JavaPlugin {
@@ -18,6 +21,8 @@ public class HytaleDevtoolsCompanion extends JavaPlugin {
     public static final int EXPORT_FORMAT_VERSION = 2;
 
     private final Config<HytaleDevtoolsCompanionConfig> config;
+    @Nullable
+    private LiveExportScheduler liveExportScheduler;
 
     public HytaleDevtoolsCompanion(@Nonnull JavaPluginInit init) {
         super(init);
@@ -30,12 +35,35 @@ public class HytaleDevtoolsCompanion extends JavaPlugin {
 
     @Override
     protected void setup() {
+        HytaleDevtoolsCompanionConfig configData = this.getConfigData();
+        Path exportPath = resolveExportPath(configData.getExportPath());
+        if (configData.isLiveExport()) {
+            LiveExportScheduler scheduler = new LiveExportScheduler(this, exportPath, configData);
+            this.liveExportScheduler = scheduler;
+            this.getEventRegistry().registerGlobal(LoadedAssetsEvent.class, event -> {
+                if (!event.isInitial()) {
+                    scheduler.onAssetsChanged(event.getAssetClass());
+                }
+            });
+            this.getEventRegistry().registerGlobal(RemovedAssetsEvent.class,
+                    event -> scheduler.onAssetsChanged(event.getAssetClass()));
+        }
+
         this.getEventRegistry().registerGlobal(BootEvent.class, event -> {
-            Path exportPath = resolveExportPath(this.getConfigData().getExportPath());
-            CompanionDataExportService.exportSnapshot(this, exportPath);
+            CompanionDataExportService.exportSnapshot(this, exportPath, configData);
+            if (this.liveExportScheduler != null) {
+                this.liveExportScheduler.enable();
+            }
         });
     }
 
+    @Override
+    protected void shutdown() {
+        if (this.liveExportScheduler != null) {
+            this.liveExportScheduler.shutdown();
+        }
+    }
+
     @Nullable
     private static Path resolveExportPath(@Nullable String configuredExportPath) {
         if (configuredExportPath == null || configuredExportPath.isBlank()) {
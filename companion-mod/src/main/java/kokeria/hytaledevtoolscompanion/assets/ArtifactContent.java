@@ -0,0 +1,27 @@
+package kokeria.hytaledevtoolscompanion.assets;
+
+import javax.annotation.Nonnull;
+
+import org.bson.BsonDocument;
+import org.bson.BsonWriter;
+import org.bson.codecs.BsonDocumentCodec;
+import org.bson.codecs.EncoderContext;
+
+/**
+ * An artifact that writes itself as a single document into a {@link BsonWriter}, so it can be encoded as JSON or
+ * BSON, or digested, without first being materialized as a {@link BsonDocument}.
+ */
+@FunctionalInterface
+interface ArtifactContent {
+    /**
+     * Writes the artifact document. Fields that change on every export, such as timestamps, are only written when
+     * {@code includeVolatile} is set, so the same content always digests the same.
+     */
+    void write(@Nonnull BsonWriter writer, boolean includeVolatile);
+
+    @Nonnull
+    static ArtifactContent of(@Nonnull BsonDocument document) {
+        BsonDocumentCodec codec = new BsonDocumentCodec();
+        return (writer, includeVolatile) -> codec.encode(writer, document, EncoderContext.builder().build());
+    }
+}
@@ -0,0 +1,94 @@
+package kokeria.hytaledevtoolscompanion.assets;
+
+import java.io.Writer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+import javax.annotation.Nonnull;
+
+import org.bson.json.JsonMode;
+import org.bson.json.JsonWriter;
+import org.bson.json.JsonWriterSettings;
+
+final class ArtifactDigests {
+    private static final JsonWriterSettings DIGEST_SETTINGS = JsonWriterSettings.builder()
+            .outputMode(JsonMode.EXTENDED)
+            .build();
+
+    private ArtifactDigests() {
+    }
+
+    /**
+     * SHA-256 over the compact extended JSON encoding of {@code content} without its volatile fields. The encoding
+     * is streamed into the digest, so nothing is buffered, and it is fully determined by key order, values and value
+     * types, so equal content always yields the same digest.
+     */
+    @Nonnull
+    static String digest(@Nonnull ArtifactContent content) {
+        MessageDigest messageDigest = newDigest();
+        DigestWriter digestWriter = new DigestWriter(messageDigest);
+        content.write(new JsonWriter(digestWriter, DIGEST_SETTINGS), false);
+        digestWriter.flush();
+        return HexFormat.of().formatHex(messageDigest.digest());
+    }
+
+    /** SHA-256 over raw artifact bytes. */
+    @Nonnull
+    static String digest(@Nonnull byte[] bytes) {
+        return HexFormat.of().formatHex(newDigest().digest(bytes));
+    }
+
+    @Nonnull
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException exception) {
+            throw new IllegalStateException(exception);
+        }
+    }
+
+    /** Feeds UTF-16 code units into the digest in chunks. */
+    private static final class DigestWriter extends Writer {
+        private final MessageDigest messageDigest;
+        private final byte[] buffer = new byte[8192];
+        private int position;
+
+        private DigestWriter(@Nonnull MessageDigest messageDigest) {
+            this.messageDigest = messageDigest;
+        }
+
+        @Override
+        public void write(int character) {
+            if (this.position == this.buffer.length) {
+                flush();
+            }
+            this.buffer[this.position++] = (byte) (character >>> 8);
+            this.buffer[this.position++] = (byte) character;
+        }
+
+        @Override
+        public void write(@Nonnull char[] buffer, int offset, int length) {
+            for (int i = offset; i < offset + length; i++) {
+                write(buffer[i]);
+            }
+        }
+
+        @Override
+        public void write(@Nonnull String text, int offset, int length) {
+            for (int i = offset; i < offset + length; i++) {
+                write(text.charAt(i));
+            }
+        }
+
+        @Override
+        public void flush() {
+            this.messageDigest.update(this.buffer, 0, this.position);
+            this.position = 0;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
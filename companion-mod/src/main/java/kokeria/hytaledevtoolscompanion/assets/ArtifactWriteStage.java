@@ -0,0 +1,283 @@
+package kokeria.hytaledevtoolscompanion.assets;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * Serializes and writes artifacts in the given {@link ExportArtifactFormat} into the staging directory with at most
+ * {@code maxInFlightWrites} files in progress at once. Submitting blocks while the limit is reached, so callers
+ * producing artifacts are throttled by the disk. Submissions may also reserve an estimate of the memory the artifact
+ * holds until it is written; once {@code memoryBudgetBytes} is reserved, further submissions wait, so producers can
+ * hand artifacts over as soon as they are built without piling them up. Submitting is safe from several threads.
+ * <p>
+ * Artifacts whose content digest matches the previous export are not serialized again; they are linked from the
+ * published tree into staging and reported as reused.
+ */
+final class ArtifactWriteStage implements AutoCloseable {
+    private final Path stagingDirectory;
+    private final Path publishedDirectory;
+    private final Map<String, String> previousDigests;
+    private final ExportArtifactFormat format;
+    @Nullable
+    private final ExecutorService executor;
+    private final Semaphore inFlight;
+    private final long memoryBudgetBytes;
+    private final Object budgetLock = new Object();
+    private final List<Future<WrittenArtifact>> pending = Collections.synchronizedList(new ArrayList<>());
+    private final List<WrittenArtifact> written = Collections.synchronizedList(new ArrayList<>());
+    private long reservedBytes;
+
+    ArtifactWriteStage(
+            @Nonnull Path stagingDirectory,
+            @Nonnull Path publishedDirectory,
+            @Nonnull Map<String, String> previousDigests,
+            @Nonnull ExportArtifactFormat format,
+            int maxInFlightWrites,
+            long memoryBudgetBytes) {
+        int permits = Math.max(1, maxInFlightWrites);
+        this.stagingDirectory = stagingDirectory;
+        this.publishedDirectory = publishedDirectory;
+        this.previousDigests = previousDigests;
+        this.format = format;
+        this.executor = permits > 1 ? Executors.newFixedThreadPool(permits, runnable -> {
+            Thread thread = new Thread(runnable, "HytaleDevtoolsCompanion-ExportWriter");
+            thread.setDaemon(true);
+            return thread;
+        }) : null;
+        this.inFlight = new Semaphore(permits);
+        this.memoryBudgetBytes = Math.max(0, memoryBudgetBytes);
+    }
+
+    void submit(@Nonnull String relativePath, @Nonnull ArtifactContent content) throws IOException {
+        submit(relativePath, content, 0);
+    }
+
+    /**
+     * Queues {@code content} for writing and reserves {@code estimatedBytes} of the memory budget until it has been
+     * written. Blocks while the budget is exhausted; an artifact larger than the whole budget is still accepted once
+     * nothing else is reserved.
+     */
+    void submit(
+            @Nonnull String relativePath,
+            @Nonnull ArtifactContent content,
+            long estimatedBytes) throws IOException {
+        submit(relativePath, () -> ArtifactDigests.digest(content),
+                outputPath -> this.format.write(outputPath, content), estimatedBytes);
+    }
+
+    /**
+     * Queues an artifact written as raw bytes, regardless of the artifact format. {@code digest} must identify the
+     * bytes without producing them: {@code bytes} is only called on the writing thread, and not at all when the
+     * digest matches the previous export.
+     */
+    void submitBytes(
+            @Nonnull String relativePath,
+            @Nonnull ArtifactContent digest,
+            @Nonnull Supplier<byte[]> bytes,
+            long estimatedBytes) throws IOException {
+        submit(relativePath, () -> ArtifactDigests.digest(digest), outputPath -> Files.write(outputPath, bytes.get()),
+                estimatedBytes);
+    }
+
+    private void submit(
+            @Nonnull String relativePath,
+            @Nonnull Supplier<String> digest,
+            @Nonnull ArtifactFileWriter fileWriter,
+            long estimatedBytes) throws IOException {
+        reserve(relativePath, estimatedBytes);
+        if (this.executor == null) {
+            try {
+                this.written.add(writeArtifact(relativePath, digest, fileWriter));
+            } finally {
+                release(estimatedBytes);
+            }
+            return;
+        }
+
+        try {
+            this.inFlight.acquire();
+        } catch (InterruptedException exception) {
+            release(estimatedBytes);
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting to write " + relativePath, exception);
+        }
+
+        try {
+            this.pending.add(this.executor.submit(() -> {
+                try {
+                    return writeArtifact(relativePath, digest, fileWriter);
+                } finally {
+                    this.inFlight.release();
+                    release(estimatedBytes);
+                }
+            }));
+        } catch (RuntimeException exception) {
+            this.inFlight.release();
+            release(estimatedBytes);
+            throw exception;
+        }
+    }
+
+    /**
+     * Carries over a published artifact without regenerating its content, recording {@code digest} for it. Fails if
+     * the published file is missing.
+     */
+    void carryOverPublished(@Nonnull String relativePath, @Nonnull String digest) throws IOException {
+        long allocatedBefore = ExportStats.currentThreadAllocatedBytes();
+        long start = System.nanoTime();
+        Path outputPath = this.stagingDirectory.resolve(relativePath);
+        Files.createDirectories(outputPath.getParent());
+        carryOver(this.publishedDirectory.resolve(relativePath), outputPath);
+        this.written.add(new WrittenArtifact(relativePath, digest, Files.size(outputPath), System.nanoTime() - start,
+                ExportStats.allocatedSince(allocatedBefore), true));
+    }
+
+    @Nonnull
+    List<WrittenArtifact> await() throws IOException {
+        for (Future<WrittenArtifact> future : this.pending) {
+            try {
+                this.written.add(future.get());
+            } catch (InterruptedException exception) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while waiting for artifact writes", exception);
+            } catch (ExecutionException exception) {
+                rethrow(exception.getCause());
+            }
+        }
+        this.pending.clear();
+
+        List<WrittenArtifact> result = new ArrayList<>(this.written);
+        result.sort(Comparator.comparing(WrittenArtifact::relativePath));
+        return result;
+    }
+
+    private void reserve(@Nonnull String relativePath, long estimatedBytes) throws IOException {
+        if (estimatedBytes <= 0) {
+            return;
+        }
+
+        synchronized (this.budgetLock) {
+            while (this.reservedBytes > 0 && this.reservedBytes + estimatedBytes > this.memoryBudgetBytes) {
+                try {
+                    this.budgetLock.wait();
+                } catch (InterruptedException exception) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Interrupted while waiting to queue " + relativePath, exception);
+                }
+            }
+            this.reservedBytes += estimatedBytes;
+        }
+    }
+
+    private void release(long estimatedBytes) {
+        if (estimatedBytes <= 0) {
+            return;
+        }
+
+        synchronized (this.budgetLock) {
+            this.reservedBytes -= estimatedBytes;
+            this.budgetLock.notifyAll();
+        }
+    }
+
+    /**
+     * Cancels writes that have not finished and waits for the running ones to stop, so a failed export can delete
+     * the staging directory without a write recreating files in it.
+     */
+    @Override
+    public void close() {
+        if (this.executor == null) {
+            return;
+        }
+
+        this.executor.shutdownNow();
+        try {
+            this.executor.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Nonnull
+    private WrittenArtifact writeArtifact(
+            @Nonnull String relativePath,
+            @Nonnull Supplier<String> digestSupplier,
+            @Nonnull ArtifactFileWriter fileWriter) throws IOException {
+        long allocatedBefore = ExportStats.currentThreadAllocatedBytes();
+        long start = System.nanoTime();
+        Path outputPath = this.stagingDirectory.resolve(relativePath);
+        String digest = digestSupplier.get();
+        Path publishedPath = this.publishedDirectory.resolve(relativePath);
+        if (digest.equals(this.previousDigests.get(relativePath)) && Files.isRegularFile(publishedPath)) {
+            Files.createDirectories(outputPath.getParent());
+            carryOver(publishedPath, outputPath);
+            return new WrittenArtifact(relativePath, digest, Files.size(outputPath), System.nanoTime() - start,
+                    ExportStats.allocatedSince(allocatedBefore), true);
+        }
+
+        Files.createDirectories(outputPath.getParent());
+        fileWriter.write(outputPath);
+        return new WrittenArtifact(relativePath, digest, Files.size(outputPath), System.nanoTime() - start,
+                ExportStats.allocatedSince(allocatedBefore), false);
+    }
+
+    private static void carryOver(@Nonnull Path publishedPath, @Nonnull Path outputPath) throws IOException {
+        try {
+            Files.createLink(outputPath, publishedPath);
+        } catch (IOException | UnsupportedOperationException ignored) {
+            Files.copy(publishedPath, outputPath);
+        }
+    }
+
+    /** Rethrows the failure of a write task, unwrapping I/O failures to the {@link IOException} behind them. */
+    private static void rethrow(@Nullable Throwable cause) throws IOException {
+        if (cause instanceof IOException ioException) {
+            throw ioException;
+        }
+        if (cause instanceof UncheckedIOException uncheckedIOException) {
+            throw uncheckedIOException.getCause();
+        }
+        if (cause instanceof RuntimeException runtimeException) {
+            throw runtimeException;
+        }
+        if (cause instanceof Error error) {
+            throw error;
+        }
+        throw new IOException(cause);
+    }
+
+    @FunctionalInterface
+    private interface ArtifactFileWriter {
+        void write(@Nonnull Path outputPath) throws IOException;
+    }
+
+    /**
+     * {@code allocatedBytes} covers digesting, encoding and writing on the writing thread, or is -1 where that
+     * thread's allocations cannot be measured.
+     */
+    record WrittenArtifact(
+            @Nonnull String relativePath,
+            @Nonnull String digest,
+            long bytes,
+            long durationNanos,
+            long allocatedBytes,
+            boolean reused) {
+    }
+}
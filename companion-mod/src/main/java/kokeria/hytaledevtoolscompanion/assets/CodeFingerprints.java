@@ -0,0 +1,79 @@
+package kokeria.hytaledevtoolscompanion.assets;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.CodeSource;
+import java.security.MessageDigest;
+import java.util.HexFormat;
+import java.util.Set;
+import java.util.TreeSet;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import com.hypixel.hytale.server.core.plugin.JavaPlugin;
+import com.hypixel.hytale.server.core.plugin.PluginBase;
+import com.hypixel.hytale.server.core.plugin.PluginManager;
+
+/**
+ * Fingerprint of the code that generated schemas depend on: the server version and jar plus the jar of every loaded
+ * Java plugin, each identified by its path, size and modification time. An empty fingerprint means the code could
+ * not be identified, and never matches.
+ */
+final class CodeFingerprints {
+    private CodeFingerprints() {
+    }
+
+    @Nonnull
+    static String fingerprint(@Nonnull String hytaleVersion) {
+        try {
+            Set<Path> codeFiles = new TreeSet<>();
+            Path serverJar = codeSourcePath(PluginManager.class);
+            if (serverJar != null) {
+                codeFiles.add(serverJar);
+            }
+
+            PluginManager pluginManager = PluginManager.get();
+            if (pluginManager != null) {
+                for (PluginBase plugin : pluginManager.getPlugins()) {
+                    if (plugin instanceof JavaPlugin javaPlugin && javaPlugin.getFile() != null) {
+                        codeFiles.add(javaPlugin.getFile().toAbsolutePath().normalize());
+                    }
+                }
+            }
+
+            MessageDigest digest = PackageFingerprints.newDigest();
+            digest.update(hytaleVersion.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            for (Path codeFile : codeFiles) {
+                if (!Files.isRegularFile(codeFile)) {
+                    // Exploded class directories cannot be fingerprinted cheaply.
+                    return "";
+                }
+                PackageFingerprints.update(digest, codeFile.toString(), Files.size(codeFile),
+                        Files.getLastModifiedTime(codeFile).toMillis());
+            }
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (IOException | RuntimeException ignored) {
+            // best-effort metadata only
+            return "";
+        }
+    }
+
+    @Nullable
+    private static Path codeSourcePath(@Nonnull Class<?> type) {
+        CodeSource codeSource = type.getProtectionDomain().getCodeSource();
+        if (codeSource == null || codeSource.getLocation() == null) {
+            return null;
+        }
+
+        try {
+            return Path.of(codeSource.getLocation().toURI()).toAbsolutePath().normalize();
+        } catch (URISyntaxException | RuntimeException ignored) {
+            return null;
+        }
+    }
+}
@@ -1,8 +1,16 @@
 package kokeria.hytaledevtoolscompanion.assets;
 
 import java.nio.file.Path;
+import java.util.Collection;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
 import java.util.logging.Level;
+import java.util.stream.Collectors;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
@@ -11,11 +19,14 @@ import com.hypixel.hytale.server.core.plugin.JavaPlugin;
 
 import kokeria.hytaledevtoolscompanion.HytaleDevtoolsCompanion;
 import kokeria.hytaledevtoolscompanion.assets.index.IndexExportCoordinator;
-import kokeria.hytaledevtoolscompanion.assets.index.IndexShard;
+import kokeria.hytaledevtoolscompanion.assets.schema.SchemaDefinitionSplitter;
 import kokeria.hytaledevtoolscompanion.assets.schema.SchemaExportService;
-import kokeria.hytaledevtoolscompanion.assets.schema.SchemaMetadataAugmenter;
+import kokeria.hytaledevtoolscompanion.config.HytaleDevtoolsCompanionConfig;
 
 public final class CompanionDataExportService {
+    private static final int SLOWEST_ENTRIES_LOGGED = 5;
+    private static final Object EXPORT_LOCK = new Object();
+
     private CompanionDataExportService() {
     }
 
@@ -24,9 +35,70 @@ public final class CompanionDataExportService {
     }
 
     public static void exportSnapshot(@Nonnull JavaPlugin plugin, @Nullable Path outputDirectoryOverride) {
+        exportSnapshot(plugin, outputDirectoryOverride, new HytaleDevtoolsCompanionConfig());
+    }
+
+    public static void exportSnapshot(
+            @Nonnull JavaPlugin plugin,
+            @Nullable Path outputDirectoryOverride,
+            @Nonnull HytaleDevtoolsCompanionConfig config) {
+        synchronized (EXPORT_LOCK) {
+            exportSnapshotLocked(plugin, outputDirectoryOverride, config);
+        }
+    }
+
+    /**
+     * Re-exports only the index shards derived from the given asset types, reusing the published export for
+     * everything else. Does nothing until a full snapshot has been exported to the output directory.
+     */
+    public static void exportChangedAssetTypes(
+            @Nonnull JavaPlugin plugin,
+            @Nullable Path outputDirectoryOverride,
+            @Nonnull HytaleDevtoolsCompanionConfig config,
+            @Nonnull Set<Class<?>> changedAssetClasses) {
+        synchronized (EXPORT_LOCK) {
+            Path outputDirectory = resolveOutputDirectory(plugin, outputDirectoryOverride);
+            ExportManifestService.ExportManifestSnapshot existingManifest = ExportManifestService
+                    .readExistingExportManifest(outputDirectory);
+            if (existingManifest == null) {
+                return;
+            }
+
+            try {
+                ExportStats stats = new ExportStats();
+                IndexExportCoordinator.IncrementalIndexBuild indexBuild = stats.measure("index.changedAssetTypes",
+                        () -> IndexExportCoordinator.buildForChangedAssetTypes(SchemaExportService.collectStores(),
+                                changedAssetClasses, existingManifest.assetNameLookups()),
+                        build -> IndexExportCoordinator.countEntries(build.shards()));
+                List<ArtifactWriteStage.WrittenArtifact> writtenArtifacts = ExportArtifactsWriter.writeIncremental(
+                        outputDirectory,
+                        indexBuild.shards(),
+                        indexBuild.rebuiltDirectories(),
+                        existingManifest,
+                        config.isForceSequentialExport() ? 1 : config.getMaxInFlightWrites(),
+                        stats);
+                logPhaseStats(plugin, stats);
+                plugin.getLogger().at(Level.INFO).log(
+                        "Updated %d of %d index shards after reloading %d asset types",
+                        writtenArtifacts.size(),
+                        indexBuild.shards().size(),
+                        changedAssetClasses.size());
+            } catch (Throwable throwable) {
+                plugin.getLogger().at(Level.SEVERE).withCause(throwable)
+                        .log("Failed to update companion indexes after asset reload");
+            }
+        }
+    }
+
+    private static void exportSnapshotLocked(
+            @Nonnull JavaPlugin plugin,
+            @Nullable Path outputDirectoryOverride,
+            @Nonnull HytaleDevtoolsCompanionConfig config) {
         Path outputDirectory = resolveOutputDirectory(plugin, outputDirectoryOverride);
         String hytaleVersion = ExportManifestService.resolveHytaleServerVersion();
-        List<ExportManifestService.RuntimePackage> runtimePackages = ExportManifestService.collectRuntimePackages();
+        ExportStats stats = new ExportStats();
+        List<ExportManifestService.RuntimePackage> runtimePackages = stats.measure("packages",
+                ExportManifestService::collectRuntimePackages, List::size);
         ExportManifestService.ExportManifestSnapshot existingManifest = ExportManifestService
                 .readExistingExportManifest(outputDirectory);
         int exportFormatVersion = ExportManifestService.resolveExportFormatVersion(
@@ -35,7 +107,15 @@ public final class CompanionDataExportService {
         ExportManifestService.ExportManifestSnapshot manifestSnapshot = ExportManifestService.createSnapshot(
                 hytaleVersion,
                 exportFormatVersion,
-                runtimePackages);
+                ExportArtifactFormat.fromId(config.getArtifactFormat()),
+                config.isSplitSharedSchemaDefinitions(),
+                config.isDictionaryEncodedLocalization(),
+                config.isBinaryIndexShards(),
+                config.isDictionaryEncodedAssetEntries(),
+                config.isAssetNameLookups(),
+                CodeFingerprints.fingerprint(hytaleVersion),
+                runtimePackages,
+                existingManifest);
 
         if (ExportManifestService.shouldSkipExport(
                 plugin,
@@ -46,19 +126,136 @@ public final class CompanionDataExportService {
         }
 
         try {
-            SchemaExportService.SchemaExportData schemaExportData = SchemaExportService.generate();
-            SchemaMetadataAugmenter.augment(schemaExportData.schemaDocuments());
-
-            List<IndexShard> indexShards = IndexExportCoordinator.build(schemaExportData,
-                    runtimePackages);
+            Map<String, String> reusedSchemaDigests = ExportManifestService.findReusableSchemaDigests(
+                    outputDirectory,
+                    manifestSnapshot,
+                    existingManifest);
+            SchemaExportService.SchemaExportData schemaExportData = reusedSchemaDigests.isEmpty()
+                    ? generateSchemas(plugin, config, stats)
+                    : reuseSchemas(plugin, existingManifest, reusedSchemaDigests);
 
-            ExportArtifactsWriter.write(outputDirectory, schemaExportData, indexShards, manifestSnapshot);
+            List<ArtifactWriteStage.WrittenArtifact> writtenArtifacts = ExportArtifactsWriter.write(
+                    outputDirectory,
+                    schemaExportData,
+                    reusedSchemaDigests,
+                    sink -> IndexExportCoordinator.build(schemaExportData, runtimePackages,
+                            !config.isForceSequentialExport(), config.isDictionaryEncodedLocalization(),
+                            config.isAssetNameLookups(), stats, sink),
+                    manifestSnapshot.withUiDataSets(schemaExportData.uiDataSets()),
+                    existingManifest,
+                    config.isForceSequentialExport() ? 1 : config.getMaxInFlightWrites(),
+                    config.getExportMemoryBudgetMegabytes() * 1024L * 1024L,
+                    stats);
+            logWrittenArtifacts(plugin, writtenArtifacts);
+            logPhaseStats(plugin, stats);
             plugin.getLogger().at(Level.INFO).log("Exported companion snapshot artifacts to %s", outputDirectory);
         } catch (Throwable throwable) {
             plugin.getLogger().at(Level.SEVERE).withCause(throwable).log("Failed to export companion snapshot");
         }
     }
 
+    @Nonnull
+    private static SchemaExportService.SchemaExportData reuseSchemas(
+            @Nonnull JavaPlugin plugin,
+            @Nonnull ExportManifestService.ExportManifestSnapshot existingManifest,
+            @Nonnull Map<String, String> reusedSchemaDigests) {
+        plugin.getLogger().at(Level.INFO).log(
+                "Server and plugin code are unchanged; reusing %d exported schema artifacts",
+                reusedSchemaDigests.size());
+        return SchemaExportService.withoutSchemas(Objects.requireNonNull(existingManifest.uiDataSets()));
+    }
+
+    @Nonnull
+    private static SchemaExportService.SchemaExportData generateSchemas(
+            @Nonnull JavaPlugin plugin,
+            @Nonnull HytaleDevtoolsCompanionConfig config,
+            @Nonnull ExportStats stats) {
+        boolean concurrent = !config.isForceSequentialExport();
+        SchemaExportService.SchemaExportData rawSchemas = stats.measure("schemas.generate",
+                () -> SchemaExportService.generate(concurrent), CompanionDataExportService::countSchemas, concurrent);
+        SchemaExportService.SchemaExportData generatedSchemas = stats.measure("schemas.augment",
+                () -> SchemaExportService.augment(rawSchemas), CompanionDataExportService::countSchemas);
+        logSchemaEncodeTimes(plugin, generatedSchemas.encodeNanos());
+        if (!config.isSplitSharedSchemaDefinitions()) {
+            return generatedSchemas;
+        }
+        return stats.measure("schemas.split",
+                () -> generatedSchemas.withSchemaDocuments(
+                        SchemaDefinitionSplitter.split(generatedSchemas.schemaDocuments())),
+                CompanionDataExportService::countSchemas);
+    }
+
+    private static long countSchemas(@Nonnull SchemaExportService.SchemaExportData schemaExportData) {
+        return schemaExportData.schemaDocuments().size();
+    }
+
+    private static void logSchemaEncodeTimes(@Nonnull JavaPlugin plugin, @Nonnull Map<String, Long> encodeNanos) {
+        long totalNanos = 0;
+        for (Map.Entry<String, Long> entry : encodeNanos.entrySet()) {
+            totalNanos += entry.getValue();
+            plugin.getLogger().at(Level.FINE).log("Encoded schema %s in %.1f ms",
+                    entry.getKey(),
+                    entry.getValue() / 1_000_000.0);
+        }
+
+        String slowestSummary = summarizeSlowest(encodeNanos.entrySet(), Map.Entry::getValue,
+                entry -> String.format("%s=%.1fms", entry.getKey(), entry.getValue() / 1_000_000.0));
+        plugin.getLogger().at(Level.INFO).log("Encoded %d schemas (%.1f ms total encode time); slowest: %s",
+                encodeNanos.size(),
+                totalNanos / 1_000_000.0,
+                slowestSummary);
+    }
+
+    private static void logWrittenArtifacts(
+            @Nonnull JavaPlugin plugin,
+            @Nonnull List<ArtifactWriteStage.WrittenArtifact> writtenArtifacts) {
+        long totalBytes = 0;
+        for (ArtifactWriteStage.WrittenArtifact artifact : writtenArtifacts) {
+            totalBytes += artifact.bytes();
+            plugin.getLogger().at(Level.FINE).log("%s %s (%d bytes) in %.1f ms",
+                    artifact.reused() ? "Kept" : "Wrote",
+                    artifact.relativePath(),
+                    artifact.bytes(),
+                    artifact.durationNanos() / 1_000_000.0);
+        }
+
+        String slowestSummary = summarizeSlowest(writtenArtifacts, ArtifactWriteStage.WrittenArtifact::durationNanos,
+                artifact -> String.format("%s=%.1fms/%dB",
+                        artifact.relativePath(),
+                        artifact.durationNanos() / 1_000_000.0,
+                        artifact.bytes()));
+        long reusedCount = writtenArtifacts.stream().filter(ArtifactWriteStage.WrittenArtifact::reused).count();
+        plugin.getLogger().at(Level.INFO).log("Wrote %d artifact files (%d unchanged, %d bytes); slowest: %s",
+                writtenArtifacts.size(),
+                reusedCount,
+                totalBytes,
+                slowestSummary);
+    }
+
+    /** Formats the {@link #SLOWEST_ENTRIES_LOGGED} entries with the longest duration, slowest first. */
+    @Nonnull
+    private static <T> String summarizeSlowest(
+            @Nonnull Collection<T> entries,
+            @Nonnull ToLongFunction<T> durationNanos,
+            @Nonnull Function<T, String> format) {
+        return entries.stream()
+                .sorted(Comparator.comparingLong(durationNanos).reversed())
+                .limit(SLOWEST_ENTRIES_LOGGED)
+                .map(format)
+                .collect(Collectors.joining(", "));
+    }
+
+    private static void logPhaseStats(@Nonnull JavaPlugin plugin, @Nonnull ExportStats stats) {
+        for (ExportStats.Phase phase : stats.phases()) {
+            plugin.getLogger().at(Level.INFO).log("Export phase %s: %.1f ms, %d entries, %d bytes written, %s",
+                    phase.name(),
+                    phase.durationNanos() / 1_000_000.0,
+                    phase.entries(),
+                    phase.bytes(),
+                    phase.allocatedBytes() < 0 ? "allocation unknown" : phase.allocatedBytes() + " bytes allocated");
+        }
+    }
+
     @Nonnull
     private static Path resolveOutputDirectory(@Nonnull JavaPlugin plugin, @Nullable Path outputDirectoryOverride) {
         if (outputDirectoryOverride != null) {
@@ -0,0 +1,108 @@
+package kokeria.hytaledevtoolscompanion.assets;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import org.bson.BsonBinaryReader;
+import org.bson.BsonBinaryWriter;
+import org.bson.BsonDocument;
+import org.bson.codecs.BsonDocumentCodec;
+import org.bson.codecs.DecoderContext;
+import org.bson.io.BasicOutputBuffer;
+import org.bson.json.JsonMode;
+import org.bson.json.JsonWriter;
+import org.bson.json.JsonWriterSettings;
+
+/**
+ * On-disk encoding of exported schemas and index shards. Artifacts are named by their logical {@code .json} path;
+ * {@link #resolvePath(String)} maps that to the file actually written. The export manifest itself is always JSON.
+ */
+public enum ExportArtifactFormat {
+    JSON("json"),
+    BSON("bson");
+
+    private static final String LOGICAL_EXTENSION = ".json";
+    private static final BsonDocumentCodec DOCUMENT_CODEC = new BsonDocumentCodec();
+    /** Same layout as {@code BsonUtil.writeDocument}, which the extension and the bundled default data use. */
+    private static final JsonWriterSettings JSON_SETTINGS = JsonWriterSettings.builder()
+            .outputMode(JsonMode.RELAXED)
+            .indent(true)
+            .indentCharacters("  ")
+            .newLineCharacters("\n")
+            .build();
+
+    private final String id;
+
+    ExportArtifactFormat(@Nonnull String id) {
+        this.id = id;
+    }
+
+    @Nonnull
+    public String id() {
+        return this.id;
+    }
+
+    @Nonnull
+    public String resolvePath(@Nonnull String logicalPath) {
+        if (this == JSON || !logicalPath.endsWith(LOGICAL_EXTENSION)) {
+            return logicalPath;
+        }
+        return logicalPath.substring(0, logicalPath.length() - LOGICAL_EXTENSION.length()) + "." + this.id;
+    }
+
+    /** Unknown or blank values fall back to {@link #JSON}, which is what older manifests and configs imply. */
+    @Nonnull
+    public static ExportArtifactFormat fromId(@Nullable String id) {
+        if (id != null) {
+            String normalized = id.trim().toLowerCase(Locale.ROOT);
+            for (ExportArtifactFormat format : values()) {
+                if (format.id.equals(normalized)) {
+                    return format;
+                }
+            }
+        }
+        return JSON;
+    }
+
+    @Nonnull
+    static ExportArtifactFormat forFile(@Nonnull Path file) {
+        String fileName = file.getFileName() == null ? "" : file.getFileName().toString();
+        return fileName.endsWith("." + BSON.id) ? BSON : JSON;
+    }
+
+    void write(@Nonnull Path file, @Nonnull ArtifactContent content) throws IOException {
+        if (this == JSON) {
+            try (Writer output = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+                content.write(new JsonWriter(output, JSON_SETTINGS), true);
+            }
+            return;
+        }
+
+        try (BasicOutputBuffer buffer = new BasicOutputBuffer();
+                BsonBinaryWriter writer = new BsonBinaryWriter(buffer);
+                OutputStream output = Files.newOutputStream(file)) {
+            content.write(writer, true);
+            buffer.pipe(output);
+        }
+    }
+
+    @Nonnull
+    BsonDocument read(@Nonnull Path file) throws IOException {
+        if (this == JSON) {
+            return BsonDocument.parse(Files.readString(file));
+        }
+
+        try (BsonBinaryReader reader = new BsonBinaryReader(ByteBuffer.wrap(Files.readAllBytes(file)))) {
+            return DOCUMENT_CODEC.decode(reader, DecoderContext.builder().build());
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package kokeria.hytaledevtoolscompanion.assets;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+import javax.annotation.Nonnull;
+
+import org.bson.BsonDocument;
+
+/**
+ * Reads exported artifacts back regardless of the format they were written in.
+ */
+public final class ExportArtifactReader {
+    private ExportArtifactReader() {
+    }
+
+    /**
+     * Reads a single artifact file, choosing the decoder from its extension ({@code .bson} or {@code .json}).
+     */
+    @Nonnull
+    public static BsonDocument readDocument(@Nonnull Path file) throws IOException {
+        return ExportArtifactFormat.forFile(file).read(file);
+    }
+
+    /**
+     * Reads the artifact with the given logical path, e.g. {@code indexes/registeredAssets/Texture.json}, from an
+     * export directory, resolving the physical file from the data directory and {@code artifactFormat} recorded in
+     * its manifest.
+     */
+    @Nonnull
+    public static BsonDocument readArtifact(@Nonnull Path exportDirectory, @Nonnull String logicalPath)
+            throws IOException {
+        ExportManifestService.ExportManifestSnapshot manifest = ExportManifestService
+                .readExistingExportManifest(exportDirectory);
+        if (manifest == null) {
+            return readDocument(exportDirectory.resolve(ExportArtifactFormat.JSON.resolvePath(logicalPath)));
+        }
+        return readDocument(manifest.dataRoot(exportDirectory).resolve(
+                manifest.artifactFormat().resolvePath(logicalPath)));
+    }
+
+    @Nonnull
+    public static ExportArtifactFormat artifactFormat(@Nonnull Path exportDirectory) {
+        ExportManifestService.ExportManifestSnapshot manifest = ExportManifestService
+                .readExistingExportManifest(exportDirectory);
+        return manifest == null ? ExportArtifactFormat.JSON : manifest.artifactFormat();
+    }
+}
@@ -1,26 +1,34 @@
 package kokeria.hytaledevtoolscompanion.assets;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.Comparator;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Consumer;
 import java.util.stream.Stream;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 
 import org.bson.BsonDocument;
 
-import com.hypixel.hytale.server.core.util.BsonUtil;
-
 import kokeria.hytaledevtoolscompanion.assets.index.IndexShard;
 import kokeria.hytaledevtoolscompanion.assets.schema.SchemaExportService;
 
 final class ExportArtifactsWriter {
     private static final String SCHEMAS_DIRECTORY = "schemas";
     private static final String INDEXES_DIRECTORY = "indexes";
+    private static final String LEGACY_STAGING_DIRECTORY = ".staging";
+    private static final String LEGACY_PREVIOUS_DIRECTORY = ".previous";
 
     private static final List<String> LEGACY_EXPORT_FILES = List.of(
             "stores_info",
@@ -35,46 +43,333 @@ final class ExportArtifactsWriter {
     private ExportArtifactsWriter() {
     }
 
-    static void write(
+    /** Produces index shards into a sink, possibly from several threads. The sink blocks to apply back-pressure. */
+    @FunctionalInterface
+    interface IndexShardSource {
+        void produce(@Nonnull Consumer<IndexShard> sink);
+    }
+
+    /**
+     * Writes a complete snapshot into a fresh generation directory, {@code generations/<generation>/} below
+     * {@code outputDirectory}, then publishes it by atomically replacing the export manifest, which names that
+     * directory. Consumers watch the manifest and resolve {@code schemas/} and {@code indexes/} through it, so the
+     * single rename switches them from one complete tree to the next and they never see a partial one. The previous
+     * generation is kept until the next publish for readers still working from it; if writing fails, the new
+     * generation is deleted and the published one stays live. The rename must be atomic; file systems that cannot
+     * rename atomically fail the export rather than publish non-atomically.
+     * <p>
+     * The manifest records a content digest per artifact. Artifacts whose digest matches {@code existingManifest}
+     * are carried over from the published tree rather than rewritten. Schemas and shards are encoded in the
+     * snapshot's artifact format; the manifest is always JSON.
+     * <p>
+     * Schema artifacts listed in {@code reusedSchemaDigests} are carried over from the published tree as they are,
+     * in addition to the documents in {@code schemaExportData}.
+     * <p>
+     * Index shards are written as {@code indexShards} hands them over. Shards queued for writing may hold up to
+     * roughly {@code shardMemoryBudgetBytes}; beyond that the exporter waits before handing over its next shard.
+     * The budget does not cover shards an exporter is still building: each exporter builds its complete shard list
+     * before handing any of it over, so peak memory also includes the lists of the exporters that are running.
+     * <p>
+     * The write phases are recorded in {@code stats}, which is then stored in the manifest.
+     */
+    @Nonnull
+    static List<ArtifactWriteStage.WrittenArtifact> write(
             @Nonnull Path outputDirectory,
             @Nonnull SchemaExportService.SchemaExportData schemaExportData,
+            @Nonnull Map<String, String> reusedSchemaDigests,
+            @Nonnull IndexShardSource indexShards,
+            @Nonnull ExportManifestService.ExportManifestSnapshot manifestSnapshot,
+            @Nullable ExportManifestService.ExportManifestSnapshot existingManifest,
+            int maxInFlightWrites,
+            long shardMemoryBudgetBytes,
+            @Nonnull ExportStats stats) throws IOException {
+        Path generationDirectory = manifestSnapshot.dataRoot(outputDirectory);
+        clearDirectory(generationDirectory);
+        Files.createDirectories(generationDirectory.resolve(SCHEMAS_DIRECTORY));
+        Files.createDirectories(generationDirectory.resolve(INDEXES_DIRECTORY));
+
+        try {
+            String generatedAt = Instant.now().toString();
+            long writeStart = System.nanoTime();
+            List<ArtifactWriteStage.WrittenArtifact> writtenArtifacts;
+            try (ArtifactWriteStage writeStage = new ArtifactWriteStage(
+                    generationDirectory,
+                    existingManifest == null ? outputDirectory : existingManifest.dataRoot(outputDirectory),
+                    existingManifest == null ? Map.of() : existingManifest.artifactDigests(),
+                    manifestSnapshot.artifactFormat(),
+                    maxInFlightWrites,
+                    shardMemoryBudgetBytes)) {
+                for (Map.Entry<String, String> entry : reusedSchemaDigests.entrySet()) {
+                    writeStage.carryOverPublished(entry.getKey(), entry.getValue());
+                }
+                writeSchemas(writeStage, schemaExportData.schemaDocuments(), manifestSnapshot.artifactFormat());
+                try {
+                    indexShards.produce(indexShard -> {
+                        try {
+                            writeIndex(writeStage, indexShard, manifestSnapshot, generatedAt);
+                        } catch (IOException exception) {
+                            throw new UncheckedIOException(exception);
+                        }
+                    });
+                } catch (UncheckedIOException exception) {
+                    throw exception.getCause();
+                }
+                writtenArtifacts = writeStage.await();
+            }
+            recordWritePhases(stats, writtenArtifacts, System.nanoTime() - writeStart);
+
+            Map<String, String> artifactDigests = new TreeMap<>();
+            for (ArtifactWriteStage.WrittenArtifact artifact : writtenArtifacts) {
+                artifactDigests.put(artifact.relativePath(), artifact.digest());
+            }
+            publish(outputDirectory, manifestSnapshot.withArtifactDigests(artifactDigests), existingManifest,
+                    generatedAt, stats);
+            cleanupLegacyArtifacts(outputDirectory);
+            return writtenArtifacts;
+        } catch (IOException | RuntimeException | Error exception) {
+            discardUnpublished(outputDirectory, generationDirectory);
+            throw exception;
+        }
+    }
+
+    /**
+     * Publishes only the given index shards in place of the published ones, for live updates after an asset reload.
+     * Shards are compared against the digests in {@code existingManifest} and only changed ones are written.
+     * Previously exported shards under {@code rebuiltDirectories} that were not produced again are dropped. If
+     * anything changed, the next generation is assembled from the changed shards plus links to every other
+     * published artifact and published like a full snapshot, so its manifest's stats section describes this update.
+     * Returns the changed artifacts.
+     */
+    @Nonnull
+    static List<ArtifactWriteStage.WrittenArtifact> writeIncremental(
+            @Nonnull Path outputDirectory,
             @Nonnull List<IndexShard> indexShards,
-            @Nonnull ExportManifestService.ExportManifestSnapshot manifestSnapshot) throws IOException {
-        Files.createDirectories(outputDirectory);
-
-        String generatedAt = Instant.now().toString();
-        writeSchemas(outputDirectory, schemaExportData.schemaDocuments());
-        writeIndexes(outputDirectory, indexShards, manifestSnapshot.hytaleVersion(), generatedAt);
-        ExportManifestService.write(outputDirectory, manifestSnapshot, generatedAt);
-        cleanupLegacyArtifacts(outputDirectory);
+            @Nonnull Set<String> rebuiltDirectories,
+            @Nonnull ExportManifestService.ExportManifestSnapshot existingManifest,
+            int maxInFlightWrites,
+            @Nonnull ExportStats stats) throws IOException {
+        ExportManifestService.ExportManifestSnapshot nextManifest = existingManifest.nextGeneration();
+        Path generationDirectory = nextManifest.dataRoot(outputDirectory);
+        clearDirectory(generationDirectory);
+        Files.createDirectories(generationDirectory);
+
+        try {
+            String generatedAt = Instant.now().toString();
+            long writeStart = System.nanoTime();
+            List<ArtifactWriteStage.WrittenArtifact> changedArtifacts = new ArrayList<>();
+            List<ArtifactWriteStage.WrittenArtifact> generationArtifacts;
+            try (ArtifactWriteStage writeStage = new ArtifactWriteStage(
+                    generationDirectory,
+                    existingManifest.dataRoot(outputDirectory),
+                    existingManifest.artifactDigests(),
+                    existingManifest.artifactFormat(),
+                    maxInFlightWrites,
+                    0)) {
+                for (IndexShard indexShard : indexShards) {
+                    writeIndex(writeStage, indexShard, existingManifest, generatedAt);
+                }
+
+                Set<String> producedPaths = new HashSet<>();
+                for (ArtifactWriteStage.WrittenArtifact artifact : writeStage.await()) {
+                    producedPaths.add(artifact.relativePath());
+                    if (!artifact.reused()) {
+                        changedArtifacts.add(artifact);
+                    }
+                }
+
+                List<String> unchangedPaths = new ArrayList<>();
+                boolean removedAny = false;
+                for (String relativePath : existingManifest.artifactDigests().keySet()) {
+                    if (producedPaths.contains(relativePath)) {
+                        continue;
+                    }
+                    if (isInRebuiltDirectory(relativePath, rebuiltDirectories)) {
+                        removedAny = true;
+                    } else {
+                        unchangedPaths.add(relativePath);
+                    }
+                }
+                if (changedArtifacts.isEmpty() && !removedAny) {
+                    clearDirectory(generationDirectory);
+                    return changedArtifacts;
+                }
+
+                for (String relativePath : unchangedPaths) {
+                    writeStage.carryOverPublished(relativePath, existingManifest.artifactDigests().get(relativePath));
+                }
+                generationArtifacts = writeStage.await();
+            }
+            recordWritePhases(stats, changedArtifacts, System.nanoTime() - writeStart);
+
+            Map<String, String> artifactDigests = new TreeMap<>();
+            for (ArtifactWriteStage.WrittenArtifact artifact : generationArtifacts) {
+                artifactDigests.put(artifact.relativePath(), artifact.digest());
+            }
+            publish(outputDirectory, nextManifest.withArtifactDigests(artifactDigests), existingManifest,
+                    generatedAt, stats);
+            return changedArtifacts;
+        } catch (IOException | RuntimeException | Error exception) {
+            discardUnpublished(outputDirectory, generationDirectory);
+            throw exception;
+        }
     }
 
-    private static void writeSchemas(
+    /**
+     * Writes {@code manifest} into its generation directory and renames it over the live manifest, which is the
+     * single step that switches readers to the new generation. Generations other than the new and the previous one
+     * are deleted afterwards, as is the pre-generation layout once it is no longer the previous generation.
+     * <p>
+     * All of this is recorded in {@code stats} as the {@code publish} phase, after the manifest holding the other
+     * phases has been written.
+     */
+    private static void publish(
             @Nonnull Path outputDirectory,
-            @Nonnull Map<String, BsonDocument> schemaDocuments) throws IOException {
-        Path schemaDirectory = outputDirectory.resolve(SCHEMAS_DIRECTORY);
-        clearDirectory(schemaDirectory);
-        Files.createDirectories(schemaDirectory);
+            @Nonnull ExportManifestService.ExportManifestSnapshot manifest,
+            @Nullable ExportManifestService.ExportManifestSnapshot previousManifest,
+            @Nonnull String generatedAt,
+            @Nonnull ExportStats stats) throws IOException {
+        long allocatedBefore = ExportStats.currentThreadAllocatedBytes();
+        long start = System.nanoTime();
+        Path generationDirectory = manifest.dataRoot(outputDirectory);
+        Path liveManifest = outputDirectory.resolve(ExportManifestService.EXPORT_MANIFEST_FILE + ".json");
+        ExportManifestService.write(generationDirectory, manifest, generatedAt, stats);
+        Files.move(generationDirectory.resolve(ExportManifestService.EXPORT_MANIFEST_FILE + ".json"), liveManifest,
+                StandardCopyOption.ATOMIC_MOVE);
+
+        Set<Path> liveDirectories = new HashSet<>();
+        liveDirectories.add(generationDirectory);
+        if (previousManifest != null) {
+            liveDirectories.add(previousManifest.dataRoot(outputDirectory));
+        }
+        removeGenerations(outputDirectory, liveDirectories);
+        if (!liveDirectories.contains(outputDirectory)) {
+            clearDirectory(outputDirectory.resolve(SCHEMAS_DIRECTORY));
+            clearDirectory(outputDirectory.resolve(INDEXES_DIRECTORY));
+            clearDirectory(outputDirectory.resolve(LEGACY_STAGING_DIRECTORY));
+            clearDirectory(outputDirectory.resolve(LEGACY_PREVIOUS_DIRECTORY));
+        }
+        stats.record(new ExportStats.Phase("publish", System.nanoTime() - start, 1, Files.size(liveManifest),
+                ExportStats.allocatedSince(allocatedBefore)));
+    }
 
+    /** Deletes a generation that failed before it was published, keeping the failure that caused it. */
+    private static void discardUnpublished(@Nonnull Path outputDirectory, @Nonnull Path generationDirectory) {
+        ExportManifestService.ExportManifestSnapshot published = ExportManifestService
+                .readExistingExportManifest(outputDirectory);
+        if (published != null && published.dataRoot(outputDirectory).equals(generationDirectory)) {
+            return;
+        }
+        try {
+            clearDirectory(generationDirectory);
+        } catch (IOException | RuntimeException ignored) {
+            // the next export clears it before writing
+        }
+    }
+
+    private static void removeGenerations(@Nonnull Path outputDirectory, @Nonnull Set<Path> keep) throws IOException {
+        Path generationsDirectory = outputDirectory.resolve(ExportManifestService.GENERATIONS_DIRECTORY);
+        if (!Files.isDirectory(generationsDirectory)) {
+            return;
+        }
+
+        List<Path> generations;
+        try (Stream<Path> stream = Files.list(generationsDirectory)) {
+            generations = stream.toList();
+        }
+        for (Path generation : generations) {
+            if (!keep.contains(generation)) {
+                clearDirectory(generation);
+            }
+        }
+    }
+
+    /**
+     * Records a {@code write} phase spanning all writes, and a {@code write.<directory>} phase per artifact
+     * directory. Artifacts are written concurrently, so a directory phase's duration is the sum of its artifacts'
+     * write times rather than wall-clock time, and the {@code write} phase overlaps the index phases whose shards
+     * it writes as they are produced. Bytes only count artifacts that were written rather than carried over.
+     */
+    private static void recordWritePhases(
+            @Nonnull ExportStats stats,
+            @Nonnull List<ArtifactWriteStage.WrittenArtifact> writtenArtifacts,
+            long durationNanos) {
+        Map<String, List<ArtifactWriteStage.WrittenArtifact>> artifactsByDirectory = new TreeMap<>();
+        for (ArtifactWriteStage.WrittenArtifact artifact : writtenArtifacts) {
+            String relativePath = artifact.relativePath();
+            String directory = relativePath.substring(0, Math.max(0, relativePath.lastIndexOf('/')));
+            artifactsByDirectory.computeIfAbsent(directory, ignored -> new ArrayList<>()).add(artifact);
+        }
+
+        stats.record(writePhase("write", writtenArtifacts, durationNanos));
+        for (Map.Entry<String, List<ArtifactWriteStage.WrittenArtifact>> entry : artifactsByDirectory.entrySet()) {
+            long directoryNanos = 0;
+            for (ArtifactWriteStage.WrittenArtifact artifact : entry.getValue()) {
+                directoryNanos += artifact.durationNanos();
+            }
+            stats.record(writePhase("write." + entry.getKey(), entry.getValue(), directoryNanos));
+        }
+    }
+
+    @Nonnull
+    private static ExportStats.Phase writePhase(
+            @Nonnull String name,
+            @Nonnull List<ArtifactWriteStage.WrittenArtifact> artifacts,
+            long durationNanos) {
+        long bytes = 0;
+        long allocatedBytes = 0;
+        for (ArtifactWriteStage.WrittenArtifact artifact : artifacts) {
+            if (!artifact.reused()) {
+                bytes += artifact.bytes();
+            }
+            allocatedBytes = allocatedBytes < 0 || artifact.allocatedBytes() < 0
+                    ? ExportStats.UNKNOWN
+                    : allocatedBytes + artifact.allocatedBytes();
+        }
+        return new ExportStats.Phase(name, durationNanos, artifacts.size(), bytes, allocatedBytes);
+    }
+
+    private static boolean isInRebuiltDirectory(@Nonnull String relativePath, @Nonnull Set<String> rebuiltDirectories) {
+        for (String directory : rebuiltDirectories) {
+            if (relativePath.startsWith(INDEXES_DIRECTORY + "/" + directory + "/")
+                    || relativePath.startsWith(IndexShard.BINARY_INDEXES_DIRECTORY + "/" + directory + "/")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void writeSchemas(
+            @Nonnull ArtifactWriteStage writeStage,
+            @Nonnull Map<String, BsonDocument> schemaDocuments,
+            @Nonnull ExportArtifactFormat format) throws IOException {
         for (Map.Entry<String, BsonDocument> entry : schemaDocuments.entrySet()) {
-            BsonUtil.writeDocument(schemaDirectory.resolve(entry.getKey()), entry.getValue(), false).join();
+            writeStage.submit(format.resolvePath(SCHEMAS_DIRECTORY + "/" + entry.getKey()),
+                    ArtifactContent.of(entry.getValue()));
         }
     }
 
-    private static void writeIndexes(
-            @Nonnull Path outputDirectory,
-            @Nonnull List<IndexShard> indexShards,
-            @Nonnull String hytaleVersion,
+    /**
+     * Writes a shard in the artifact format and layout recorded in {@code manifest}. With binary indexes enabled,
+     * shards of asset entries also get a {@code BinaryAssetIndex} under {@code indexes-bin/}. Its digest is taken
+     * from the shard content, so it is only encoded, on the writing thread, when that content changed. The binary
+     * index keeps the shard alive until it is written, so it reserves the shard's memory estimate as well.
+     */
+    private static void writeIndex(
+            @Nonnull ArtifactWriteStage writeStage,
+            @Nonnull IndexShard indexShard,
+            @Nonnull ExportManifestService.ExportManifestSnapshot manifest,
             @Nonnull String generatedAt) throws IOException {
-        Path indexesDirectory = outputDirectory.resolve(INDEXES_DIRECTORY);
-        clearDirectory(indexesDirectory);
-        Files.createDirectories(indexesDirectory);
-
-        for (IndexShard indexShard : indexShards) {
-            Path outputPath = outputDirectory.resolve(indexShard.relativePath());
-            Files.createDirectories(outputPath.getParent());
-            BsonUtil.writeDocument(outputPath, indexShard.toBsonDocument(hytaleVersion, generatedAt), false).join();
+        String hytaleVersion = manifest.hytaleVersion();
+        if (manifest.binaryIndexes() && indexShard.hasBinaryIndex()) {
+            writeStage.submitBytes(indexShard.binaryIndexRelativePath(),
+                    (writer, includeVolatile) -> indexShard.writeBinaryIndexSource(writer, hytaleVersion),
+                    () -> indexShard.toBinaryIndex(hytaleVersion),
+                    indexShard.estimatedBytes());
         }
+        writeStage.submit(manifest.artifactFormat().resolvePath(indexShard.relativePath()),
+                (writer, includeVolatile) -> indexShard.write(writer, hytaleVersion,
+                        includeVolatile ? generatedAt : null, manifest.dictionaryAssetEntries()),
+                indexShard.estimatedBytes());
     }
 
     private static void cleanupLegacyArtifacts(@Nonnull Path outputDirectory) throws IOException {
@@ -7,15 +7,21 @@ import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
 import java.util.logging.Level;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 
 import org.bson.BsonArray;
+import org.bson.BsonBoolean;
 import org.bson.BsonDocument;
 import org.bson.BsonInt32;
+import org.bson.BsonInt64;
 import org.bson.BsonString;
 import org.bson.BsonValue;
 
@@ -27,7 +33,9 @@ import com.hypixel.hytale.server.core.plugin.JavaPlugin;
 import com.hypixel.hytale.server.core.util.BsonUtil;
 
 public final class ExportManifestService {
-    private static final String EXPORT_MANIFEST_FILE = "export_manifest";
+    static final String EXPORT_MANIFEST_FILE = "export_manifest";
+    static final String GENERATIONS_DIRECTORY = "generations";
+    private static final String SCHEMAS_PREFIX = "schemas/";
 
     private ExportManifestService() {
     }
@@ -36,11 +44,22 @@ public final class ExportManifestService {
     static ExportManifestSnapshot createSnapshot(
             @Nonnull String hytaleVersion,
             int exportFormatVersion,
-            @Nonnull List<RuntimePackage> runtimePackages) {
+            @Nonnull ExportArtifactFormat artifactFormat,
+            boolean splitSchemaDefinitions,
+            boolean dictionaryLocalization,
+            boolean binaryIndexes,
+            boolean dictionaryAssetEntries,
+            boolean assetNameLookups,
+            @Nonnull String codeFingerprint,
+            @Nonnull List<RuntimePackage> runtimePackages,
+            @Nullable ExportManifestSnapshot existingManifest) {
         List<ManifestPackage> loadedPackages = runtimePackages.stream()
                 .map(RuntimePackage::manifestPackage)
                 .toList();
-        return new ExportManifestSnapshot(exportFormatVersion, hytaleVersion, loadedPackages);
+        long generation = existingManifest == null ? 1 : existingManifest.generation() + 1;
+        return new ExportManifestSnapshot(exportFormatVersion, hytaleVersion, artifactFormat, splitSchemaDefinitions,
+                dictionaryLocalization, binaryIndexes, dictionaryAssetEntries, assetNameLookups, codeFingerprint,
+                loadedPackages, generation, generationDirectory(generation), Map.of(), null);
     }
 
     static int resolveExportFormatVersion(
@@ -62,12 +81,16 @@ public final class ExportManifestService {
         for (AssetPack assetPack : assetModule.getAssetPacks()) {
             PluginManifest manifest = assetPack.getManifest();
             String version = manifest != null && manifest.getVersion() != null ? manifest.getVersion().toString() : "";
-            String packLocation = assetPack.getPackLocation().toAbsolutePath().normalize().toString();
+            Path packLocation = assetPack.getPackLocation().toAbsolutePath().normalize();
+            Path root = assetPack.getRoot().toAbsolutePath().normalize();
+            PackageFileCatalog files = PackageFileCatalog.of(root, packLocation);
             runtimePackages.add(new RuntimePackage(
                     assetPack.getName(),
                     version,
-                    packLocation,
-                    assetPack.getRoot().toAbsolutePath().normalize()));
+                    packLocation.toString(),
+                    root,
+                    PackageFingerprints.fingerprint(files),
+                    files));
         }
 
         runtimePackages.sort(Comparator.comparing(RuntimePackage::name)
@@ -102,6 +125,40 @@ public final class ExportManifestService {
         return true;
     }
 
+    /**
+     * Returns the digests of the published schema artifacts when they can be carried over instead of generating the
+     * schemas again, or an empty map. Schemas only depend on server and plugin code, so this requires a matching
+     * non-empty code fingerprint and the same schema layout, and every schema artifact must still be on disk.
+     */
+    @Nonnull
+    static Map<String, String> findReusableSchemaDigests(
+            @Nonnull Path outputDirectory,
+            @Nonnull ExportManifestSnapshot currentManifest,
+            @Nullable ExportManifestSnapshot existingManifest) {
+        if (existingManifest == null
+                || existingManifest.exportFormatVersion() == -1
+                || existingManifest.uiDataSets() == null
+                || currentManifest.codeFingerprint().isEmpty()
+                || !currentManifest.codeFingerprint().equals(existingManifest.codeFingerprint())
+                || currentManifest.exportFormatVersion() != existingManifest.exportFormatVersion()
+                || currentManifest.artifactFormat() != existingManifest.artifactFormat()
+                || currentManifest.splitSchemaDefinitions() != existingManifest.splitSchemaDefinitions()) {
+            return Map.of();
+        }
+
+        Map<String, String> schemaDigests = new TreeMap<>();
+        for (Map.Entry<String, String> entry : existingManifest.artifactDigests().entrySet()) {
+            if (!entry.getKey().startsWith(SCHEMAS_PREFIX)) {
+                continue;
+            }
+            if (!Files.isRegularFile(existingManifest.dataRoot(outputDirectory).resolve(entry.getKey()))) {
+                return Map.of();
+            }
+            schemaDigests.put(entry.getKey(), entry.getValue());
+        }
+        return schemaDigests;
+    }
+
     @Nullable
     static ExportManifestSnapshot readExistingExportManifest(@Nonnull Path outputDirectory) {
         Path exportManifestPath = outputDirectory.resolve(EXPORT_MANIFEST_FILE + ".json");
@@ -120,16 +177,25 @@ public final class ExportManifestService {
         }
     }
 
+    /** Writes the manifest with {@code stats} as its {@code stats} section. Stats are never read back. */
     static void write(
             @Nonnull Path outputDirectory,
             @Nonnull ExportManifestSnapshot manifestSnapshot,
-            @Nonnull String exportedAt) {
+            @Nonnull String exportedAt,
+            @Nonnull ExportStats stats) {
+        BsonDocument document = manifestSnapshot.toBsonDocument(exportedAt);
+        document.put("stats", stats.toBsonDocument());
         BsonUtil.writeDocument(
                 outputDirectory.resolve(EXPORT_MANIFEST_FILE + ".json"),
-                manifestSnapshot.toBsonDocument(exportedAt),
+                document,
                 false).join();
     }
 
+    @Nonnull
+    static String generationDirectory(long generation) {
+        return GENERATIONS_DIRECTORY + "/" + generation;
+    }
+
     @Nonnull
     static String resolveHytaleServerVersion() {
         try {
@@ -147,23 +213,27 @@ public final class ExportManifestService {
             @Nonnull String name,
             @Nonnull String version,
             @Nonnull String packLocation,
-            @Nonnull Path root) {
+            @Nonnull Path root,
+            @Nonnull String fingerprint,
+            @Nonnull PackageFileCatalog files) {
         @Nonnull
         ManifestPackage manifestPackage() {
-            return new ManifestPackage(this.name, this.version, this.packLocation);
+            return new ManifestPackage(this.name, this.version, this.packLocation, this.fingerprint);
         }
     }
 
     record ManifestPackage(
             @Nonnull String name,
             @Nonnull String version,
-            @Nonnull String packLocation) {
+            @Nonnull String packLocation,
+            @Nonnull String fingerprint) {
         @Nonnull
         BsonDocument toBsonDocument() {
             BsonDocument document = new BsonDocument();
             document.put("name", new BsonString(this.name));
             document.put("version", new BsonString(this.version));
             document.put("packLocation", new BsonString(this.packLocation));
+            document.put("fingerprint", new BsonString(this.fingerprint));
             return document;
         }
 
@@ -172,18 +242,78 @@ public final class ExportManifestService {
             return new ManifestPackage(
                     stringValue(document, "name"),
                     stringValue(document, "version"),
-                    stringValue(document, "packLocation"));
+                    stringValue(document, "packLocation"),
+                    stringValue(document, "fingerprint"));
         }
     }
 
     record ExportManifestSnapshot(
             int exportFormatVersion,
             @Nonnull String hytaleVersion,
-            @Nonnull List<ManifestPackage> loadedPackages) {
+            @Nonnull ExportArtifactFormat artifactFormat,
+            boolean splitSchemaDefinitions,
+            boolean dictionaryLocalization,
+            boolean binaryIndexes,
+            boolean dictionaryAssetEntries,
+            boolean assetNameLookups,
+            @Nonnull String codeFingerprint,
+            @Nonnull List<ManifestPackage> loadedPackages,
+            long generation,
+            @Nonnull String dataDirectory,
+            @Nonnull Map<String, String> artifactDigests,
+            @Nullable Set<String> uiDataSets) {
+        @Nonnull
+        ExportManifestSnapshot withArtifactDigests(@Nonnull Map<String, String> artifactDigests) {
+            return new ExportManifestSnapshot(this.exportFormatVersion, this.hytaleVersion, this.artifactFormat,
+                    this.splitSchemaDefinitions, this.dictionaryLocalization, this.binaryIndexes,
+                    this.dictionaryAssetEntries, this.assetNameLookups, this.codeFingerprint, this.loadedPackages,
+                    this.generation, this.dataDirectory, artifactDigests, this.uiDataSets);
+        }
+
+        /** Records the uiDataSets referenced by the exported schemas, so a later export can reuse the schemas. */
+        @Nonnull
+        ExportManifestSnapshot withUiDataSets(@Nonnull Set<String> uiDataSets) {
+            return new ExportManifestSnapshot(this.exportFormatVersion, this.hytaleVersion, this.artifactFormat,
+                    this.splitSchemaDefinitions, this.dictionaryLocalization, this.binaryIndexes,
+                    this.dictionaryAssetEntries, this.assetNameLookups, this.codeFingerprint, this.loadedPackages,
+                    this.generation, this.dataDirectory, this.artifactDigests, new TreeSet<>(uiDataSets));
+        }
+
+        /** The same export content, published as the next generation in its own data directory. */
+        @Nonnull
+        ExportManifestSnapshot nextGeneration() {
+            return new ExportManifestSnapshot(this.exportFormatVersion, this.hytaleVersion, this.artifactFormat,
+                    this.splitSchemaDefinitions, this.dictionaryLocalization, this.binaryIndexes,
+                    this.dictionaryAssetEntries, this.assetNameLookups, this.codeFingerprint, this.loadedPackages,
+                    this.generation + 1, generationDirectory(this.generation + 1), this.artifactDigests,
+                    this.uiDataSets);
+        }
+
+        /**
+         * Directory holding the {@code schemas/} and {@code indexes/} this manifest describes. Manifests written
+         * before generation directories existed have an empty data directory, which is the output directory itself.
+         */
+        @Nonnull
+        Path dataRoot(@Nonnull Path outputDirectory) {
+            return this.dataDirectory.isEmpty() ? outputDirectory : outputDirectory.resolve(this.dataDirectory);
+        }
+
+        /**
+         * Whether {@code other} describes the same export, so it need not be written again. A package whose
+         * fingerprint is empty could not be read, and never matches.
+         */
         boolean matches(@Nonnull ExportManifestSnapshot other) {
             return this.exportFormatVersion == other.exportFormatVersion
                     && Objects.equals(this.hytaleVersion, other.hytaleVersion)
-                    && this.loadedPackages.equals(other.loadedPackages);
+                    && this.artifactFormat == other.artifactFormat
+                    && this.splitSchemaDefinitions == other.splitSchemaDefinitions
+                    && this.dictionaryLocalization == other.dictionaryLocalization
+                    && this.binaryIndexes == other.binaryIndexes
+                    && this.dictionaryAssetEntries == other.dictionaryAssetEntries
+                    && this.assetNameLookups == other.assetNameLookups
+                    && this.codeFingerprint.equals(other.codeFingerprint)
+                    && this.loadedPackages.equals(other.loadedPackages)
+                    && this.loadedPackages.stream().noneMatch(loadedPackage -> loadedPackage.fingerprint().isEmpty());
         }
 
         @Nonnull
@@ -196,7 +326,28 @@ public final class ExportManifestService {
             BsonDocument document = new BsonDocument();
             document.put("exportFormatVersion", new BsonInt32(this.exportFormatVersion));
             document.put("hytaleVersion", new BsonString(this.hytaleVersion));
+            document.put("artifactFormat", new BsonString(this.artifactFormat.id()));
+            document.put("splitSchemaDefinitions", BsonBoolean.valueOf(this.splitSchemaDefinitions));
+            document.put("dictionaryLocalization", BsonBoolean.valueOf(this.dictionaryLocalization));
+            document.put("binaryIndexes", BsonBoolean.valueOf(this.binaryIndexes));
+            document.put("dictionaryAssetEntries", BsonBoolean.valueOf(this.dictionaryAssetEntries));
+            document.put("assetNameLookups", BsonBoolean.valueOf(this.assetNameLookups));
+            document.put("codeFingerprint", new BsonString(this.codeFingerprint));
             document.put("loadedPackages", loadedPackagesArray);
+            document.put("generation", new BsonInt64(this.generation));
+            document.put("dataDirectory", new BsonString(this.dataDirectory));
+            BsonDocument artifactsDocument = new BsonDocument();
+            for (Map.Entry<String, String> entry : this.artifactDigests.entrySet()) {
+                artifactsDocument.put(entry.getKey(), new BsonString(entry.getValue()));
+            }
+            document.put("artifacts", artifactsDocument);
+            if (this.uiDataSets != null) {
+                BsonArray uiDataSetsArray = new BsonArray();
+                for (String uiDataSet : this.uiDataSets) {
+                    uiDataSetsArray.add(new BsonString(uiDataSet));
+                }
+                document.put("uiDataSets", uiDataSetsArray);
+            }
             document.put("exportedAt", new BsonString(exportedAt));
             return document;
         }
@@ -220,13 +371,65 @@ public final class ExportManifestService {
                 packages.add(ManifestPackage.fromBson(value.asDocument()));
             }
 
+            Map<String, String> artifactDigests = new TreeMap<>();
+            BsonValue artifacts = document.get("artifacts");
+            if (artifacts != null && artifacts.isDocument()) {
+                for (Map.Entry<String, BsonValue> entry : artifacts.asDocument().entrySet()) {
+                    if (entry.getValue().isString()) {
+                        artifactDigests.put(entry.getKey(), entry.getValue().asString().getValue());
+                    }
+                }
+            }
+
+            Set<String> uiDataSets = null;
+            BsonValue uiDataSetsValue = document.get("uiDataSets");
+            if (uiDataSetsValue != null && uiDataSetsValue.isArray()) {
+                uiDataSets = new TreeSet<>();
+                for (BsonValue value : uiDataSetsValue.asArray()) {
+                    if (value.isString()) {
+                        uiDataSets.add(value.asString().getValue());
+                    }
+                }
+            }
+
+            BsonValue generation = document.get("generation");
+            BsonValue artifactFormat = document.get("artifactFormat");
+            BsonValue splitSchemaDefinitions = document.get("splitSchemaDefinitions");
+            BsonValue dictionaryLocalization = document.get("dictionaryLocalization");
+            BsonValue binaryIndexes = document.get("binaryIndexes");
+            BsonValue dictionaryAssetEntries = document.get("dictionaryAssetEntries");
+            BsonValue assetNameLookups = document.get("assetNameLookups");
             return new ExportManifestSnapshot(
                     exportFormatVersion.asInt32().getValue(),
                     hytaleVersion.asString().getValue(),
-                    packages);
+                    ExportArtifactFormat.fromId(artifactFormat != null && artifactFormat.isString()
+                            ? artifactFormat.asString().getValue()
+                            : null),
+                    splitSchemaDefinitions != null && splitSchemaDefinitions.isBoolean()
+                            && splitSchemaDefinitions.asBoolean().getValue(),
+                    dictionaryLocalization != null && dictionaryLocalization.isBoolean()
+                            && dictionaryLocalization.asBoolean().getValue(),
+                    binaryIndexes != null && binaryIndexes.isBoolean() && binaryIndexes.asBoolean().getValue(),
+                    dictionaryAssetEntries != null && dictionaryAssetEntries.isBoolean()
+                            && dictionaryAssetEntries.asBoolean().getValue(),
+                    assetNameLookups != null && assetNameLookups.isBoolean() && assetNameLookups.asBoolean().getValue(),
+                    stringValue(document, "codeFingerprint"),
+                    packages,
+                    generation != null && generation.isNumber() ? generation.asNumber().longValue() : 0,
+                    readDataDirectory(document),
+                    artifactDigests,
+                    uiDataSets);
         }
     }
 
+    /** The recorded data directory, or the output directory itself if it is missing or escapes it. */
+    @Nonnull
+    private static String readDataDirectory(@Nonnull BsonDocument document) {
+        String dataDirectory = stringValue(document, "dataDirectory");
+        Path path = Path.of(dataDirectory).normalize();
+        return path.isAbsolute() || path.startsWith("..") ? "" : dataDirectory;
+    }
+
     @Nonnull
     private static String stringValue(@Nonnull BsonDocument document, @Nonnull String key) {
         BsonValue value = document.get(key);
@@ -0,0 +1,126 @@
+package kokeria.hytaledevtoolscompanion.assets;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
+
+import javax.annotation.Nonnull;
+
+import org.bson.BsonArray;
+import org.bson.BsonDocument;
+import org.bson.BsonInt64;
+import org.bson.BsonString;
+
+/**
+ * Per-phase metrics of one export, recorded into the {@code stats} section of the export manifest and logged, so a
+ * slowdown after a server update or a new pack can be traced to the phase that caused it. Each phase records its
+ * wall-clock duration, the entries it produced, the bytes it wrote and the heap bytes allocated by the thread that
+ * ran it. Allocations are unknown (-1) where the JVM cannot attribute them to a thread, and for phases that fan out
+ * to other threads, such as concurrent schema encoding and language file parsing, since the calling thread's share
+ * would understate them. Exporting with {@code ForceSequentialExport} measures every phase on the export thread.
+ * Phases may be recorded from several threads.
+ * <p>
+ * The {@code publish} phase, which writes the manifest and switches readers to it, ends after the manifest has been
+ * written, so it is logged but never part of the manifest's own {@code stats} section.
+ */
+public final class ExportStats {
+    static final long UNKNOWN = -1;
+
+    private final List<Phase> phases = Collections.synchronizedList(new ArrayList<>());
+    private final long startedAt = System.nanoTime();
+
+    /** Runs {@code action} as phase {@code name}, counting {@code entries} of its result. Nothing is written. */
+    public <T> T measure(@Nonnull String name, @Nonnull Supplier<T> action, @Nonnull ToLongFunction<T> entries) {
+        return measure(name, action, entries, false);
+    }
+
+    /**
+     * Runs {@code action} as phase {@code name}, counting {@code entries} of its result. With {@code fansOut} set
+     * the action hands work to other threads, so its allocations are recorded as unknown.
+     */
+    public <T> T measure(
+            @Nonnull String name,
+            @Nonnull Supplier<T> action,
+            @Nonnull ToLongFunction<T> entries,
+            boolean fansOut) {
+        long allocatedBefore = fansOut ? UNKNOWN : currentThreadAllocatedBytes();
+        long start = System.nanoTime();
+        T result = action.get();
+        long durationNanos = System.nanoTime() - start;
+        record(new Phase(name, durationNanos, entries.applyAsLong(result), 0,
+                allocatedSince(allocatedBefore)));
+        return result;
+    }
+
+    public void record(@Nonnull Phase phase) {
+        this.phases.add(phase);
+    }
+
+    /** Recorded phases, in the order they finished. */
+    @Nonnull
+    public List<Phase> phases() {
+        synchronized (this.phases) {
+            return List.copyOf(this.phases);
+        }
+    }
+
+    @Nonnull
+    BsonDocument toBsonDocument() {
+        BsonArray phasesArray = new BsonArray();
+        for (Phase phase : phases()) {
+            phasesArray.add(phase.toBsonDocument());
+        }
+
+        BsonDocument document = new BsonDocument();
+        document.put("elapsedNanos", new BsonInt64(System.nanoTime() - this.startedAt));
+        document.put("phases", phasesArray);
+        return document;
+    }
+
+    /**
+     * Heap bytes allocated so far by the current thread, or {@link #UNKNOWN}. A virtual thread moves between carrier
+     * threads, so the carrier's counter says nothing about it.
+     */
+    static long currentThreadAllocatedBytes() {
+        if (Thread.currentThread().isVirtual()
+                || !(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean threads)
+                || !threads.isThreadAllocatedMemorySupported()
+                || !threads.isThreadAllocatedMemoryEnabled()) {
+            return UNKNOWN;
+        }
+        return threads.getCurrentThreadAllocatedBytes();
+    }
+
+    /** Bytes allocated by the current thread since it reported {@code allocatedBefore}, or {@link #UNKNOWN}. */
+    static long allocatedSince(long allocatedBefore) {
+        long allocatedNow = currentThreadAllocatedBytes();
+        return allocatedBefore < 0 || allocatedNow < 0 ? UNKNOWN : allocatedNow - allocatedBefore;
+    }
+
+    /**
+     * Metrics of one phase. {@code bytes} counts bytes written to disk and is 0 for phases that only build data;
+     * {@code allocatedBytes} is {@link #UNKNOWN} where it could not be measured.
+     */
+    public record Phase(
+            @Nonnull String name,
+            long durationNanos,
+            long entries,
+            long bytes,
+            long allocatedBytes) {
+        @Nonnull
+        BsonDocument toBsonDocument() {
+            BsonDocument document = new BsonDocument();
+            document.put("name", new BsonString(this.name));
+            document.put("durationNanos", new BsonInt64(this.durationNanos));
+            document.put("entries", new BsonInt64(this.entries));
+            document.put("bytes", new BsonInt64(this.bytes));
+            if (this.allocatedBytes != UNKNOWN) {
+                document.put("allocatedBytes", new BsonInt64(this.allocatedBytes));
+            }
+            return document;
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package kokeria.hytaledevtoolscompanion.assets;
+
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import com.hypixel.hytale.server.core.plugin.JavaPlugin;
+
+import kokeria.hytaledevtoolscompanion.config.HytaleDevtoolsCompanionConfig;
+
+/**
+ * Collects asset types reported by asset store load/remove events and re-exports their index shards once no further
+ * events have arrived for the configured debounce window. Events are ignored until {@link #enable()} is called after
+ * the boot export.
+ */
+public final class LiveExportScheduler {
+    private final JavaPlugin plugin;
+    @Nullable
+    private final Path outputDirectoryOverride;
+    private final HytaleDevtoolsCompanionConfig config;
+    private final ScheduledExecutorService executor;
+    private final Set<Class<?>> pendingAssetClasses = new HashSet<>();
+    @Nullable
+    private ScheduledFuture<?> scheduledExport;
+    private boolean enabled;
+
+    public LiveExportScheduler(
+            @Nonnull JavaPlugin plugin,
+            @Nullable Path outputDirectoryOverride,
+            @Nonnull HytaleDevtoolsCompanionConfig config) {
+        this.plugin = plugin;
+        this.outputDirectoryOverride = outputDirectoryOverride;
+        this.config = config;
+        this.executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "HytaleDevtoolsCompanion-LiveExport");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public synchronized void enable() {
+        this.enabled = true;
+    }
+
+    public synchronized void onAssetsChanged(@Nullable Class<?> assetClass) {
+        if (!this.enabled || assetClass == null) {
+            return;
+        }
+
+        this.pendingAssetClasses.add(assetClass);
+        if (this.scheduledExport != null) {
+            this.scheduledExport.cancel(false);
+        }
+        this.scheduledExport = this.executor.schedule(this::exportPending,
+                Math.max(0, this.config.getLiveExportDebounceMillis()),
+                TimeUnit.MILLISECONDS);
+    }
+
+    public void shutdown() {
+        synchronized (this) {
+            this.enabled = false;
+            this.pendingAssetClasses.clear();
+        }
+        this.executor.shutdownNow();
+    }
+
+    private void exportPending() {
+        Set<Class<?>> changedAssetClasses;
+        synchronized (this) {
+            if (this.pendingAssetClasses.isEmpty()) {
+                return;
+            }
+            changedAssetClasses = Set.copyOf(this.pendingAssetClasses);
+            this.pendingAssetClasses.clear();
+            this.scheduledExport = null;
+        }
+
+        CompanionDataExportService.exportChangedAssetTypes(
+                this.plugin,
+                this.outputDirectoryOverride,
+                this.config,
+                changedAssetClasses);
+    }
+}
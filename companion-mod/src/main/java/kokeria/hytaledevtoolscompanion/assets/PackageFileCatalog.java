@@ -0,0 +1,234 @@
+package kokeria.hytaledevtoolscompanion.assets;
+
+import java.io.IOException;
+import java.nio.file.FileVisitOption;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Locale;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * Every regular file of a runtime package, collected in a single scan the first time any exporter asks for it and
+ * shared by all of them afterwards. Entries are sorted by relative path, so the files below a directory form one
+ * contiguous range.
+ * <p>
+ * Directory packs are walked once. Zip and jar packs such as {@code Assets.zip} are enumerated from the archive's
+ * central directory, which yields names, sizes and CRCs without opening any entry or going through the zip file
+ * system.
+ * <p>
+ * A scan that cannot read part of the package still lists what it could read, but reports itself as incomplete, so
+ * callers relying on the listing being exhaustive can tell.
+ */
+public final class PackageFileCatalog {
+    private final Path root;
+    @Nullable
+    private final Path archive;
+    @Nullable
+    private volatile Scan scan;
+
+    private PackageFileCatalog(@Nonnull Path root, @Nullable Path archive) {
+        this.root = root;
+        this.archive = archive;
+    }
+
+    @Nonnull
+    public static PackageFileCatalog of(@Nonnull Path root) {
+        return new PackageFileCatalog(root, null);
+    }
+
+    /**
+     * Catalog for a package rooted at {@code root} and loaded from {@code packLocation}. When the pack location is an
+     * archive and the root lives inside its zip file system, the central directory is scanned instead of the tree.
+     */
+    @Nonnull
+    public static PackageFileCatalog of(@Nonnull Path root, @Nonnull Path packLocation) {
+        boolean archiveRoot = Files.isRegularFile(packLocation)
+                && root.getFileSystem() != FileSystems.getDefault()
+                && packLocation.getFileSystem() == FileSystems.getDefault();
+        return new PackageFileCatalog(root, archiveRoot ? packLocation : null);
+    }
+
+    /** Whether entries come from a zip central directory and carry CRCs. */
+    public boolean isArchive() {
+        return this.archive != null;
+    }
+
+    @Nonnull
+    public Path root() {
+        return this.root;
+    }
+
+    @Nonnull
+    public List<CatalogEntry> entries() {
+        return scan().entries();
+    }
+
+    /** Whether the scan read the whole package. Entries that could not be read are missing otherwise. */
+    public boolean isComplete() {
+        return scan().complete();
+    }
+
+    @Nonnull
+    private Scan scan() {
+        Scan result = this.scan;
+        if (result == null) {
+            synchronized (this) {
+                result = this.scan;
+                if (result == null) {
+                    result = this.archive != null ? scanArchive(this.archive, this.root) : scan(this.root);
+                    this.scan = result;
+                }
+            }
+        }
+        return result;
+    }
+
+    /** Files below {@code directory}, a relative path using {@code /} separators without a trailing slash. */
+    @Nonnull
+    public List<CatalogEntry> entriesUnder(@Nonnull String directory) {
+        List<CatalogEntry> all = this.entries();
+        String prefix = directory.isEmpty() ? "" : directory + "/";
+        int low = 0;
+        int high = all.size();
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (all.get(middle).relativePath().compareTo(prefix) < 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+
+        int end = low;
+        while (end < all.size() && all.get(end).relativePath().startsWith(prefix)) {
+            end++;
+        }
+        return all.subList(low, end);
+    }
+
+    @Nonnull
+    public Path resolve(@Nonnull CatalogEntry entry) {
+        return this.root.resolve(entry.relativePath());
+    }
+
+    @Nonnull
+    private static Scan scan(@Nonnull Path root) {
+        List<CatalogEntry> entries = new ArrayList<>();
+        if (!Files.isDirectory(root)) {
+            return new Scan(entries, false);
+        }
+
+        boolean[] complete = {true};
+        try {
+            Files.walkFileTree(root, EnumSet.of(FileVisitOption.FOLLOW_LINKS), Integer.MAX_VALUE,
+                    new SimpleFileVisitor<>() {
+                        @Override
+                        public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) {
+                            if (attributes.isRegularFile()) {
+                                entries.add(CatalogEntry.of(
+                                        root.relativize(file).toString().replace('\\', '/'),
+                                        attributes.size(),
+                                        attributes.lastModifiedTime().toMillis(),
+                                        -1));
+                            }
+                            return FileVisitResult.CONTINUE;
+                        }
+
+                        @Override
+                        public FileVisitResult visitFileFailed(Path file, IOException exception) {
+                            complete[0] = false;
+                            return FileVisitResult.CONTINUE;
+                        }
+                    });
+        } catch (IOException ignored) {
+            complete[0] = false;
+        }
+
+        entries.sort(Comparator.comparing(CatalogEntry::relativePath));
+        return new Scan(entries, complete[0]);
+    }
+
+    @Nonnull
+    private static Scan scanArchive(@Nonnull Path archive, @Nonnull Path root) {
+        String rootPrefix = root.toString().replace('\\', '/');
+        while (rootPrefix.startsWith("/")) {
+            rootPrefix = rootPrefix.substring(1);
+        }
+        if (!rootPrefix.isEmpty() && !rootPrefix.endsWith("/")) {
+            rootPrefix = rootPrefix + "/";
+        }
+
+        List<CatalogEntry> entries = new ArrayList<>();
+        boolean complete = true;
+        try (ZipFile zipFile = new ZipFile(archive.toFile())) {
+            Enumeration<? extends ZipEntry> zipEntries = zipFile.entries();
+            while (zipEntries.hasMoreElements()) {
+                ZipEntry zipEntry = zipEntries.nextElement();
+                String name = zipEntry.getName();
+                while (name.startsWith("/")) {
+                    name = name.substring(1);
+                }
+                if (zipEntry.isDirectory() || !name.startsWith(rootPrefix) || name.length() == rootPrefix.length()) {
+                    continue;
+                }
+
+                entries.add(CatalogEntry.of(
+                        name.substring(rootPrefix.length()),
+                        zipEntry.getSize(),
+                        zipEntry.getTime(),
+                        zipEntry.getCrc()));
+            }
+        } catch (IOException | RuntimeException ignored) {
+            complete = false;
+        }
+
+        entries.sort(Comparator.comparing(CatalogEntry::relativePath));
+        return new Scan(entries, complete);
+    }
+
+    private record Scan(@Nonnull List<CatalogEntry> entries, boolean complete) {
+        private Scan {
+            entries = Collections.unmodifiableList(entries);
+        }
+    }
+
+    /**
+     * A regular file of the package. {@code crc} is the CRC-32 from the zip central directory for archive packs and
+     * {@code -1} for directory packs.
+     */
+    public record CatalogEntry(
+            @Nonnull String relativePath,
+            @Nonnull String extension,
+            long size,
+            long lastModifiedMillis,
+            long crc) {
+        @Nonnull
+        static CatalogEntry of(@Nonnull String relativePath, long size, long lastModifiedMillis, long crc) {
+            int slash = relativePath.lastIndexOf('/');
+            int dot = relativePath.lastIndexOf('.');
+            String extension = dot > slash + 1 && dot < relativePath.length() - 1
+                    ? relativePath.substring(dot + 1).toLowerCase(Locale.ROOT)
+                    : "";
+            return new CatalogEntry(relativePath, extension, size, lastModifiedMillis, crc);
+        }
+
+        @Nonnull
+        public String fileName() {
+            return this.relativePath.substring(this.relativePath.lastIndexOf('/') + 1);
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package kokeria.hytaledevtoolscompanion.assets;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Cheap content fingerprints for runtime packages, computed from their {@link PackageFileCatalog}. Zip and jar packs
+ * are fingerprinted from the central directory (entry name, CRC and size) without inflating any entry; directory
+ * packs from the relative path, size and modification time of every file. An empty fingerprint means the pack
+ * could not be read in full, and never matches, so an unreadable pack always forces a re-export.
+ */
+final class PackageFingerprints {
+    private PackageFingerprints() {
+    }
+
+    @Nonnull
+    static String fingerprint(@Nonnull PackageFileCatalog catalog) {
+        if (!catalog.isArchive() && !Files.isDirectory(catalog.root())) {
+            return "";
+        }
+
+        try {
+            MessageDigest digest = newDigest();
+            for (PackageFileCatalog.CatalogEntry entry : catalog.entries()) {
+                update(digest, entry.relativePath(), entry.size(),
+                        catalog.isArchive() ? entry.crc() : entry.lastModifiedMillis());
+            }
+            if (!catalog.isComplete()) {
+                return "";
+            }
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (RuntimeException ignored) {
+            // best-effort metadata only
+            return "";
+        }
+    }
+
+    static void update(@Nonnull MessageDigest digest, @Nonnull String name, long first, long second) {
+        digest.update(name.getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) 0);
+        for (int shift = 56; shift >= 0; shift -= 8) {
+            digest.update((byte) (first >>> shift));
+        }
+        for (int shift = 56; shift >= 0; shift -= 8) {
+            digest.update((byte) (second >>> shift));
+        }
+    }
+
+    @Nonnull
+    static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException exception) {
+            throw new IllegalStateException(exception);
+        }
+    }
+}
@@ -0,0 +1,310 @@
+package kokeria.hytaledevtoolscompanion.assets.index;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import javax.annotation.Nonnull;
+
+import org.bson.BsonDocument;
+import org.bson.BsonValue;
+import org.bson.BsonWriter;
+
+/**
+ * Lookup structure for the names of one registeredAssets shard, exported under
+ * {@code indexes/registeredAssetsLookup/} when the {@code AssetNameLookups} option is set. Its {@code values}
+ * document has three fields:
+ * <ul>
+ * <li>{@code keys}: every asset name, sorted by its {@link Locale#ROOT} lower-case form and then by the name
+ * itself. Indexes below refer to positions in this array.</li>
+ * <li>{@code prefixes}: for every distinct lower-case two-character prefix (or whole name, when shorter), the index
+ * of the first key that starts with it. Entries are in ascending order, so a prefix's keys end where the next
+ * prefix starts.</li>
+ * <li>{@code trigrams}: for every distinct lower-case three-character substring, the ascending indexes of the keys
+ * containing it, stored as the differences between consecutive indexes (the first relative to zero), each an
+ * unsigned LEB128 varint, and the bytes Base64 encoded.</li>
+ * </ul>
+ * A prefix query narrows to one {@code prefixes} range and binary searches it; a substring query intersects the
+ * posting lists of its trigrams, starting from the shortest. Neither scans the whole key list.
+ */
+public final class AssetNameLookup implements ShardValues {
+    private static final int PREFIX_LENGTH = 2;
+    private static final int GRAM_LENGTH = 3;
+    private static final Comparator<String> KEY_ORDER = Comparator
+            .comparing((String key) -> key.toLowerCase(Locale.ROOT))
+            .thenComparing(Comparator.naturalOrder());
+
+    private final String[] keys;
+    private final String[] lowerKeys;
+    private final String[] prefixes;
+    private final int[] prefixStarts;
+    private final Map<String, int[]> postings;
+
+    private AssetNameLookup(
+            @Nonnull String[] keys,
+            @Nonnull String[] prefixes,
+            @Nonnull int[] prefixStarts,
+            @Nonnull Map<String, int[]> postings) {
+        this.keys = keys;
+        this.lowerKeys = new String[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            this.lowerKeys[i] = keys[i].toLowerCase(Locale.ROOT);
+        }
+        this.prefixes = prefixes;
+        this.prefixStarts = prefixStarts;
+        this.postings = postings;
+    }
+
+    /** Builds the lookup for the given names. Blank and repeated names are ignored. */
+    @Nonnull
+    public static AssetNameLookup build(@Nonnull Iterable<String> names) {
+        Set<String> distinct = new HashSet<>();
+        for (String name : names) {
+            if (!name.isBlank()) {
+                distinct.add(name);
+            }
+        }
+        String[] keys = distinct.toArray(String[]::new);
+        Arrays.sort(keys, KEY_ORDER);
+
+        List<String> prefixes = new ArrayList<>();
+        List<Integer> prefixStarts = new ArrayList<>();
+        Map<String, IntList> postings = new HashMap<>();
+        for (int i = 0; i < keys.length; i++) {
+            String lowerKey = keys[i].toLowerCase(Locale.ROOT);
+            String prefix = prefixOf(lowerKey);
+            if (prefixes.isEmpty() || !prefixes.get(prefixes.size() - 1).equals(prefix)) {
+                prefixes.add(prefix);
+                prefixStarts.add(i);
+            }
+
+            for (int start = 0; start + GRAM_LENGTH <= lowerKey.length(); start++) {
+                postings.computeIfAbsent(lowerKey.substring(start, start + GRAM_LENGTH), ignored -> new IntList())
+                        .addIfAbsent(i);
+            }
+        }
+
+        Map<String, int[]> sortedPostings = new TreeMap<>();
+        for (Map.Entry<String, IntList> entry : postings.entrySet()) {
+            sortedPostings.put(entry.getKey(), entry.getValue().toArray());
+        }
+        return new AssetNameLookup(keys, prefixes.toArray(String[]::new),
+                prefixStarts.stream().mapToInt(Integer::intValue).toArray(), sortedPostings);
+    }
+
+    /** Reads a lookup from the {@code values} document of an exported registeredAssetsLookup shard. */
+    @Nonnull
+    public static AssetNameLookup read(@Nonnull BsonDocument values) {
+        List<BsonValue> keyValues = values.getArray("keys");
+        String[] keys = new String[keyValues.size()];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = keyValues.get(i).asString().getValue();
+        }
+
+        BsonDocument prefixDocument = values.getDocument("prefixes");
+        String[] prefixes = new String[prefixDocument.size()];
+        int[] prefixStarts = new int[prefixDocument.size()];
+        int index = 0;
+        for (Map.Entry<String, BsonValue> entry : prefixDocument.entrySet()) {
+            prefixes[index] = entry.getKey();
+            prefixStarts[index++] = entry.getValue().asInt32().getValue();
+        }
+
+        Map<String, int[]> postings = new HashMap<>();
+        for (Map.Entry<String, BsonValue> entry : values.getDocument("trigrams").entrySet()) {
+            postings.put(entry.getKey(), decodePostings(entry.getValue().asString().getValue()));
+        }
+        return new AssetNameLookup(keys, prefixes, prefixStarts, postings);
+    }
+
+    /** Names starting with {@code prefix}, ignoring case, in key order. */
+    @Nonnull
+    public List<String> findByPrefix(@Nonnull String prefix, int limit) {
+        String lowerPrefix = prefix.toLowerCase(Locale.ROOT);
+        int from = 0;
+        int to = this.keys.length;
+        if (lowerPrefix.length() >= PREFIX_LENGTH) {
+            int prefixIndex = Arrays.binarySearch(this.prefixes, lowerPrefix.substring(0, PREFIX_LENGTH));
+            if (prefixIndex < 0) {
+                return List.of();
+            }
+            from = this.prefixStarts[prefixIndex];
+            to = prefixIndex + 1 < this.prefixStarts.length ? this.prefixStarts[prefixIndex + 1] : this.keys.length;
+        }
+
+        List<String> result = new ArrayList<>();
+        for (int i = lowerBound(lowerPrefix, from, to); i < to && result.size() < limit; i++) {
+            if (!this.lowerKeys[i].startsWith(lowerPrefix)) {
+                break;
+            }
+            result.add(this.keys[i]);
+        }
+        return result;
+    }
+
+    /**
+     * Names containing every trigram of {@code query}, ignoring case, in key order. This includes every name that
+     * contains {@code query}; queries shorter than a trigram fall back to {@link #findByPrefix}.
+     */
+    @Nonnull
+    public List<String> findBySubstring(@Nonnull String query, int limit) {
+        String lowerQuery = query.toLowerCase(Locale.ROOT);
+        if (lowerQuery.length() < GRAM_LENGTH) {
+            return findByPrefix(query, limit);
+        }
+
+        List<int[]> lists = new ArrayList<>();
+        for (int start = 0; start + GRAM_LENGTH <= lowerQuery.length(); start++) {
+            int[] posting = this.postings.get(lowerQuery.substring(start, start + GRAM_LENGTH));
+            if (posting == null) {
+                return List.of();
+            }
+            lists.add(posting);
+        }
+        lists.sort(Comparator.comparingInt(posting -> posting.length));
+
+        List<String> result = new ArrayList<>();
+        int[] shortest = lists.get(0);
+        for (int candidate : shortest) {
+            if (result.size() >= limit) {
+                break;
+            }
+            boolean inAll = true;
+            for (int list = 1; list < lists.size() && inAll; list++) {
+                inAll = Arrays.binarySearch(lists.get(list), candidate) >= 0;
+            }
+            if (inAll) {
+                result.add(this.keys[candidate]);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public void write(@Nonnull BsonWriter writer) {
+        writer.writeStartDocument();
+        writer.writeStartArray("keys");
+        for (String key : this.keys) {
+            writer.writeString(key);
+        }
+        writer.writeEndArray();
+
+        writer.writeStartDocument("prefixes");
+        for (int i = 0; i < this.prefixes.length; i++) {
+            writer.writeInt32(this.prefixes[i], this.prefixStarts[i]);
+        }
+        writer.writeEndDocument();
+
+        writer.writeStartDocument("trigrams");
+        Map<String, int[]> sortedPostings = this.postings instanceof TreeMap ? this.postings
+                : new TreeMap<>(this.postings);
+        for (Map.Entry<String, int[]> entry : sortedPostings.entrySet()) {
+            writer.writeString(entry.getKey(), encodePostings(entry.getValue()));
+        }
+        writer.writeEndDocument();
+        writer.writeEndDocument();
+    }
+
+    @Override
+    public int size() {
+        return this.keys.length;
+    }
+
+    @Override
+    public long estimatedBytes() {
+        long estimatedBytes = 0;
+        for (String key : this.keys) {
+            estimatedBytes += IndexExportUtils.ESTIMATED_ENTRY_BYTES + 2 * IndexExportUtils.estimatedBytes(key);
+        }
+        for (int[] posting : this.postings.values()) {
+            estimatedBytes += IndexExportUtils.ESTIMATED_ENTRY_BYTES + (long) Integer.BYTES * posting.length;
+        }
+        return estimatedBytes;
+    }
+
+    private int lowerBound(@Nonnull String value, int from, int to) {
+        int low = from;
+        int high = to;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (this.lowerKeys[middle].compareTo(value) < 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    @Nonnull
+    private static String prefixOf(@Nonnull String lowerKey) {
+        return lowerKey.length() <= PREFIX_LENGTH ? lowerKey : lowerKey.substring(0, PREFIX_LENGTH);
+    }
+
+    @Nonnull
+    private static String encodePostings(@Nonnull int[] posting) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(posting.length + 4);
+        int previous = 0;
+        for (int index : posting) {
+            int delta = index - previous;
+            previous = index;
+            while ((delta & ~0x7F) != 0) {
+                bytes.write((delta & 0x7F) | 0x80);
+                delta >>>= 7;
+            }
+            bytes.write(delta);
+        }
+        return Base64.getEncoder().encodeToString(bytes.toByteArray());
+    }
+
+    @Nonnull
+    private static int[] decodePostings(@Nonnull String encoded) {
+        byte[] bytes = Base64.getDecoder().decode(encoded);
+        IntList posting = new IntList();
+        int previous = 0;
+        int position = 0;
+        while (position < bytes.length) {
+            int delta = 0;
+            int shift = 0;
+            byte current;
+            do {
+                current = bytes[position++];
+                delta |= (current & 0x7F) << shift;
+                shift += 7;
+            } while (current < 0);
+            previous += delta;
+            posting.addIfAbsent(previous);
+        }
+        return posting.toArray();
+    }
+
+    private static final class IntList {
+        private int[] values = new int[4];
+        private int size;
+
+        /** Appends {@code value} unless it is already the last element; values are added in ascending order. */
+        void addIfAbsent(int value) {
+            if (this.size > 0 && this.values[this.size - 1] == value) {
+                return;
+            }
+            if (this.size == this.values.length) {
+                this.values = Arrays.copyOf(this.values, this.size * 2);
+            }
+            this.values[this.size++] = value;
+        }
+
+        @Nonnull
+        int[] toArray() {
+            return Arrays.copyOf(this.values, this.size);
+        }
+    }
+}
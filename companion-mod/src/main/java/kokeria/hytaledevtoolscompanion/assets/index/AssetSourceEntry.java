@@ -0,0 +1,8 @@
+package kokeria.hytaledevtoolscompanion.assets.index;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/** A named asset and where it was loaded from, as listed in registeredAssets and exportFamily shards. */
+public record AssetSourceEntry(@Nonnull String name, @Nullable String sourcedFromFile, @Nullable String packageName) {
+}
@@ -0,0 +1,282 @@
+package kokeria.hytaledevtoolscompanion.assets.index;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * Binary form of a shard whose values are asset entries (registeredAssets and exportFamily), written as
+ * {@code indexes-bin/<directory>/<name>.idx} alongside the JSON or BSON shard. It is laid out so a reader can memory
+ * map it and answer lookups straight from the mapped bytes. All integers are little-endian int32.
+ * <pre>
+ * header     magic "HDTI", format version, entry count, string count,
+ *            string ids of hytaleVersion, indexKind, key, path and extension,
+ *            byte offsets of the keys, sourcedFromFile, package, string offset and string data sections
+ * keys             entry count string ids, in the shard's entry order (sorted by name)
+ * sourcedFromFile  entry count string ids
+ * package          entry count string ids
+ * string offsets   string count + 1 byte offsets into string data; string i spans [offset i, offset i + 1)
+ * string data      UTF-8 bytes of every distinct string, each stored once
+ * </pre>
+ * A string id of -1 stands for null. Entries with blank or repeated names are left out, as in the JSON shard.
+ */
+public final class BinaryAssetIndex {
+    public static final String FILE_EXTENSION = ".idx";
+    static final int MAGIC = 0x49544448;
+    static final int FORMAT_VERSION = 1;
+
+    private static final int NULL_STRING = -1;
+    private static final int ENTRY_COUNT = 8;
+    private static final int HYTALE_VERSION = 16;
+    private static final int INDEX_KIND = 20;
+    private static final int KEY = 24;
+    private static final int PATH = 28;
+    private static final int EXTENSION = 32;
+    private static final int KEYS_OFFSET = 36;
+    private static final int SOURCED_FROM_FILE_OFFSET = 40;
+    private static final int PACKAGE_OFFSET = 44;
+    private static final int STRING_OFFSETS_OFFSET = 48;
+    private static final int STRING_DATA_OFFSET = 52;
+    private static final int HEADER_BYTES = 56;
+
+    private final ByteBuffer buffer;
+    private final int entryCount;
+    private final int keysOffset;
+    private final int sourcedFromFileOffset;
+    private final int packageOffset;
+    private final int stringOffsetsOffset;
+    private final int stringDataOffset;
+
+    private BinaryAssetIndex(@Nonnull ByteBuffer buffer) throws IOException {
+        this.buffer = buffer.order(ByteOrder.LITTLE_ENDIAN);
+        if (buffer.capacity() < HEADER_BYTES || buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not a binary asset index");
+        }
+        if (buffer.getInt(4) != FORMAT_VERSION) {
+            throw new IOException("Unsupported binary asset index version " + buffer.getInt(4));
+        }
+        this.entryCount = buffer.getInt(ENTRY_COUNT);
+        this.keysOffset = buffer.getInt(KEYS_OFFSET);
+        this.sourcedFromFileOffset = buffer.getInt(SOURCED_FROM_FILE_OFFSET);
+        this.packageOffset = buffer.getInt(PACKAGE_OFFSET);
+        this.stringOffsetsOffset = buffer.getInt(STRING_OFFSETS_OFFSET);
+        this.stringDataOffset = buffer.getInt(STRING_DATA_OFFSET);
+    }
+
+    /** Memory maps {@code file}. Only the header is read up front. */
+    @Nonnull
+    public static BinaryAssetIndex open(@Nonnull Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return new BinaryAssetIndex(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    @Nonnull
+    public static BinaryAssetIndex wrap(@Nonnull byte[] bytes) throws IOException {
+        return new BinaryAssetIndex(ByteBuffer.wrap(bytes));
+    }
+
+    public int size() {
+        return this.entryCount;
+    }
+
+    @Nonnull
+    public String hytaleVersion() {
+        return requiredString(HYTALE_VERSION);
+    }
+
+    @Nonnull
+    public String indexKind() {
+        return requiredString(INDEX_KIND);
+    }
+
+    @Nonnull
+    public String key() {
+        return requiredString(KEY);
+    }
+
+    @Nullable
+    public String path() {
+        return string(this.buffer.getInt(PATH));
+    }
+
+    @Nullable
+    public String extension() {
+        return string(this.buffer.getInt(EXTENSION));
+    }
+
+    @Nonnull
+    public String name(int entry) {
+        return requiredString(this.keysOffset + Integer.BYTES * entry);
+    }
+
+    @Nullable
+    public String sourcedFromFile(int entry) {
+        return string(this.buffer.getInt(this.sourcedFromFileOffset + Integer.BYTES * entry));
+    }
+
+    @Nullable
+    public String packageName(int entry) {
+        return string(this.buffer.getInt(this.packageOffset + Integer.BYTES * entry));
+    }
+
+    @Nonnull
+    public AssetSourceEntry entry(int entry) {
+        return new AssetSourceEntry(name(entry), sourcedFromFile(entry), packageName(entry));
+    }
+
+    /** Index of the entry named {@code name}, or a negative value if there is none. Only probed names are decoded. */
+    public int indexOf(@Nonnull String name) {
+        int low = 0;
+        int high = this.entryCount - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int comparison = name(middle).compareTo(name);
+            if (comparison < 0) {
+                low = middle + 1;
+            } else if (comparison > 0) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+        return -(low + 1);
+    }
+
+    @Nullable
+    public AssetSourceEntry find(@Nonnull String name) {
+        int entry = indexOf(name);
+        return entry < 0 ? null : entry(entry);
+    }
+
+    /**
+     * Encodes {@code sortedEntries}, which must be sorted by name like the entries of
+     * {@link ShardValues#assetEntries}, with the given shard header.
+     */
+    @Nonnull
+    static byte[] encode(
+            @Nonnull String hytaleVersion,
+            @Nonnull String indexKind,
+            @Nonnull String key,
+            @Nullable String path,
+            @Nullable String extension,
+            @Nonnull List<AssetSourceEntry> sortedEntries) {
+        StringTable strings = new StringTable();
+        int[] header = {
+                strings.id(hytaleVersion),
+                strings.id(indexKind),
+                strings.id(key),
+                strings.id(path),
+                strings.id(extension)
+        };
+
+        List<AssetSourceEntry> entries = new ArrayList<>(sortedEntries.size());
+        String previousName = null;
+        for (AssetSourceEntry entry : sortedEntries) {
+            if (entry.name().isBlank() || entry.name().equals(previousName)) {
+                continue;
+            }
+            previousName = entry.name();
+            entries.add(entry);
+        }
+
+        int[] names = new int[entries.size()];
+        int[] sourcedFromFiles = new int[entries.size()];
+        int[] packageNames = new int[entries.size()];
+        for (int i = 0; i < names.length; i++) {
+            AssetSourceEntry entry = entries.get(i);
+            names[i] = strings.id(entry.name());
+            sourcedFromFiles[i] = strings.id(entry.sourcedFromFile());
+            packageNames[i] = strings.id(entry.packageName());
+        }
+
+        int keysOffset = HEADER_BYTES;
+        int sourcedFromFileOffset = keysOffset + Integer.BYTES * names.length;
+        int packageOffset = sourcedFromFileOffset + Integer.BYTES * names.length;
+        int stringOffsetsOffset = packageOffset + Integer.BYTES * names.length;
+        int stringDataOffset = stringOffsetsOffset + Integer.BYTES * (strings.size() + 1);
+        ByteBuffer buffer = ByteBuffer.allocate(stringDataOffset + strings.dataBytes())
+                .order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(MAGIC).putInt(FORMAT_VERSION).putInt(names.length).putInt(strings.size());
+        for (int id : header) {
+            buffer.putInt(id);
+        }
+        buffer.putInt(keysOffset).putInt(sourcedFromFileOffset).putInt(packageOffset).putInt(stringOffsetsOffset)
+                .putInt(stringDataOffset);
+        putAll(buffer, names);
+        putAll(buffer, sourcedFromFiles);
+        putAll(buffer, packageNames);
+        int offset = 0;
+        buffer.putInt(offset);
+        for (byte[] value : strings.values) {
+            offset += value.length;
+            buffer.putInt(offset);
+        }
+        for (byte[] value : strings.values) {
+            buffer.put(value);
+        }
+        return buffer.array();
+    }
+
+    @Nonnull
+    private String requiredString(int position) {
+        String value = string(this.buffer.getInt(position));
+        return value == null ? "" : value;
+    }
+
+    @Nullable
+    private String string(int id) {
+        if (id == NULL_STRING) {
+            return null;
+        }
+
+        int start = this.buffer.getInt(this.stringOffsetsOffset + Integer.BYTES * id);
+        int end = this.buffer.getInt(this.stringOffsetsOffset + Integer.BYTES * (id + 1));
+        byte[] bytes = new byte[end - start];
+        this.buffer.get(this.stringDataOffset + start, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void putAll(@Nonnull ByteBuffer buffer, @Nonnull int[] values) {
+        for (int value : values) {
+            buffer.putInt(value);
+        }
+    }
+
+    private static final class StringTable {
+        private final Map<String, Integer> ids = new HashMap<>();
+        private final List<byte[]> values = new ArrayList<>();
+        private int dataBytes;
+
+        int id(@Nullable String value) {
+            if (value == null) {
+                return NULL_STRING;
+            }
+            return this.ids.computeIfAbsent(value, ignored -> {
+                byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+                this.values.add(bytes);
+                this.dataBytes += bytes.length;
+                return this.values.size() - 1;
+            });
+        }
+
+        int size() {
+            return this.values.size();
+        }
+
+        int dataBytes() {
+            return this.dataBytes;
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package kokeria.hytaledevtoolscompanion.assets.index;
 
+import java.lang.invoke.MethodHandle;
 import java.lang.reflect.Array;
 import java.lang.reflect.Field;
 import java.lang.reflect.Modifier;
@@ -20,8 +21,6 @@ import java.util.Comparator;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 
-import org.bson.BsonDocument;
-
 import com.hypixel.hytale.assetstore.AssetStore;
 
 final class GeneratorIndexExporter {
@@ -54,12 +53,19 @@ final class GeneratorIndexExporter {
             new ExportFamilyRule("PointGenerator",
                     "com.hypixel.hytale.builtin.hytalegenerator.assets.pointgenerators.PointGeneratorAsset"));
 
+    private static final ClassValue<TypeMetadata> TYPE_METADATA = new ClassValue<>() {
+        @Override
+        protected TypeMetadata computeValue(Class<?> type) {
+            return TypeMetadata.of(type);
+        }
+    };
+
     private GeneratorIndexExporter() {
     }
 
     @Nonnull
     static List<IndexShard> buildExportFamilies(@Nonnull AssetStore<?, ?, ?>[] stores) {
-        Map<String, List<ValueRecord>> recordsByFamily = new TreeMap<>();
+        Map<String, List<AssetSourceEntry>> recordsByFamily = new TreeMap<>();
         for (AssetStore<?, ?, ?> store : stores) {
             for (Map.Entry<?, ?> entry : store.getAssetMap().getAssetMap().entrySet()) {
                 collectExportRecords(
@@ -71,28 +77,17 @@ final class GeneratorIndexExporter {
         }
 
         List<IndexShard> shards = new ArrayList<>();
-        for (Map.Entry<String, List<ValueRecord>> entry : recordsByFamily.entrySet()) {
-            BsonDocument values = new BsonDocument();
-            entry.getValue().sort(Comparator.comparing(ValueRecord::name)
-                    .thenComparing(value -> Objects.requireNonNullElse(value.file(), ""))
+        for (Map.Entry<String, List<AssetSourceEntry>> entry : recordsByFamily.entrySet()) {
+            entry.getValue().sort(Comparator.comparing(AssetSourceEntry::name)
+                    .thenComparing(value -> Objects.requireNonNullElse(value.sourcedFromFile(), ""))
                     .thenComparing(value -> Objects.requireNonNullElse(value.packageName(), "")));
 
-            for (ValueRecord record : entry.getValue()) {
-                if (record.name().isBlank() || values.containsKey(record.name())) {
-                    continue;
-                }
-                BsonDocument details = new BsonDocument();
-                details.put("sourcedFromFile", IndexExportUtils.nullableString(record.file()));
-                details.put("package", IndexExportUtils.nullableString(record.packageName()));
-                values.put(record.name(), details);
-            }
-
             shards.add(new IndexShard(
                     "exportFamily",
                     IndexExportUtils.sanitizeIndexKey(entry.getKey()) + ".json",
                     "exportFamily",
                     entry.getKey(),
-                    values,
+                    ShardValues.assetEntries(entry.getValue()),
                     null,
                     null));
         }
@@ -123,16 +118,24 @@ final class GeneratorIndexExporter {
                 "DecimalConstants.json",
                 "referenceBundle",
                 "DecimalConstants",
-                IndexExportUtils.toStringArray(decimalConstants.stream().toList()),
+                ShardValues.of(IndexExportUtils.toStringArray(decimalConstants.stream().toList())),
                 null,
                 null));
     }
 
+    /** Whether assets of {@code assetClass} can contribute to exportFamily or referenceBundle shards. */
+    static boolean contributesExportFamilies(@Nonnull Class<?> assetClass) {
+        TypeMetadata metadata = TYPE_METADATA.get(assetClass);
+        return metadata.generatorAssetType()
+                || metadata.family() != null
+                || "WorldStructureAsset".equals(assetClass.getSimpleName());
+    }
+
     private static void collectExportRecords(
             @Nullable Object root,
             @Nullable String file,
             @Nullable String packageName,
-            @Nonnull Map<String, List<ValueRecord>> recordsByFamily) {
+            @Nonnull Map<String, List<AssetSourceEntry>> recordsByFamily) {
         if (root == null) {
             return;
         }
@@ -179,37 +182,37 @@ final class GeneratorIndexExporter {
                 continue;
             }
 
-            String family = exportFamilyForType(current.getClass());
-            if (family != null) {
-                String exportName = IndexExportUtils.readStringField(current, "exportName");
+            TypeMetadata metadata = TYPE_METADATA.get(current.getClass());
+            if (metadata.family() != null && metadata.exportNameAccessor() != null) {
+                String exportName = readString(metadata.exportNameAccessor(), current);
                 if (exportName != null && !exportName.isBlank()) {
-                    recordsByFamily.computeIfAbsent(family, ignored -> new ArrayList<>())
-                            .add(new ValueRecord(exportName, file, packageName));
+                    recordsByFamily.computeIfAbsent(metadata.family(), ignored -> new ArrayList<>())
+                            .add(new AssetSourceEntry(exportName, file, packageName));
                 }
             }
 
-            if (!isHytaleGeneratorAssetType(current.getClass())) {
-                continue;
-            }
-
-            for (Class<?> type = current.getClass(); type != null && type != Object.class; type = type.getSuperclass()) {
-                for (Field field : type.getDeclaredFields()) {
-                    if (Modifier.isStatic(field.getModifiers()) || field.getType().isPrimitive()) {
-                        continue;
-                    }
-                    try {
-                        field.setAccessible(true);
-                        Object child = field.get(current);
-                        if (child != null) {
-                            stack.push(child);
-                        }
-                    } catch (Throwable ignored) {
+            for (MethodHandle accessor : metadata.referenceFieldAccessors()) {
+                try {
+                    Object child = (Object) accessor.invokeExact(current);
+                    if (child != null) {
+                        stack.push(child);
                     }
+                } catch (Throwable ignored) {
                 }
             }
         }
     }
 
+    @Nullable
+    private static String readString(@Nonnull MethodHandle accessor, @Nonnull Object target) {
+        try {
+            Object value = (Object) accessor.invokeExact(target);
+            return value == null ? null : value.toString();
+        } catch (Throwable ignored) {
+            return null;
+        }
+    }
+
     @Nullable
     private static String exportFamilyForType(@Nonnull Class<?> type) {
         for (ExportFamilyRule rule : EXPORT_FAMILY_RULES) {
@@ -285,9 +288,42 @@ final class GeneratorIndexExporter {
         return filePath == null ? null : filePath.toString();
     }
 
-    record ValueRecord(@Nonnull String name, @Nullable String file, @Nullable String packageName) {
+    record ExportFamilyRule(@Nonnull String family, @Nonnull String baseClassName) {
     }
 
-    record ExportFamilyRule(@Nonnull String family, @Nonnull String baseClassName) {
+    /**
+     * Everything the graph walk needs to know about a class, computed once per class: its export family, the
+     * {@code exportName} getter for family types, and getters for the reference-typed instance fields of generator
+     * asset types in declaration order from the class up to its superclasses.
+     */
+    record TypeMetadata(
+            @Nullable String family,
+            @Nullable MethodHandle exportNameAccessor,
+            boolean generatorAssetType,
+            @Nonnull MethodHandle[] referenceFieldAccessors) {
+        @Nonnull
+        static TypeMetadata of(@Nonnull Class<?> type) {
+            String family = exportFamilyForType(type);
+            MethodHandle exportNameAccessor = family == null ? null
+                    : IndexExportUtils.findFieldAccessor(type, "exportName");
+            boolean generatorAssetType = isHytaleGeneratorAssetType(type);
+            if (!generatorAssetType) {
+                return new TypeMetadata(family, exportNameAccessor, false, new MethodHandle[0]);
+            }
+
+            List<MethodHandle> accessors = new ArrayList<>();
+            for (Class<?> cursor = type; cursor != null && cursor != Object.class; cursor = cursor.getSuperclass()) {
+                for (Field field : cursor.getDeclaredFields()) {
+                    if (Modifier.isStatic(field.getModifiers()) || field.getType().isPrimitive()) {
+                        continue;
+                    }
+                    MethodHandle accessor = IndexExportUtils.unreflectGetter(field);
+                    if (accessor != null) {
+                        accessors.add(accessor);
+                    }
+                }
+            }
+            return new TypeMetadata(family, exportNameAccessor, true, accessors.toArray(MethodHandle[]::new));
+        }
     }
 }
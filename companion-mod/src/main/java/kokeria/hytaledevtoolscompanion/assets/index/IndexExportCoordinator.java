@@ -1,12 +1,24 @@
 package kokeria.hytaledevtoolscompanion.assets.index;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 import javax.annotation.Nonnull;
 
+import com.hypixel.hytale.assetstore.AssetStore;
+
 import kokeria.hytaledevtoolscompanion.assets.ExportManifestService;
+import kokeria.hytaledevtoolscompanion.assets.ExportStats;
 import kokeria.hytaledevtoolscompanion.assets.schema.SchemaExportService;
 
 public final class IndexExportCoordinator {
@@ -17,14 +29,154 @@ public final class IndexExportCoordinator {
     public static List<IndexShard> build(
             @Nonnull SchemaExportService.SchemaExportData schemaExportData,
             @Nonnull List<ExportManifestService.RuntimePackage> runtimePackages) {
-        List<IndexShard> shards = new ArrayList<>();
-        shards.add(CommonAssetPathIndexExporter.build(runtimePackages));
-        shards.addAll(RegisteredAssetIndexExporter.build(schemaExportData.stores(), runtimePackages));
-        shards.addAll(GeneratorIndexExporter.buildExportFamilies(schemaExportData.stores()));
-        shards.addAll(GeneratorIndexExporter.buildReferenceBundles(schemaExportData.stores()));
-        shards.addAll(LocalizationIndexExporter.build(runtimePackages));
-        shards.addAll(UiDataSetIndexExporter.build(schemaExportData.schemaDocuments(), runtimePackages));
+        return build(schemaExportData, runtimePackages, true);
+    }
+
+    /**
+     * Runs every index exporter and returns all shards ordered by relative path. The order does not depend on
+     * {@code concurrent}, since no two exporters produce the same path.
+     */
+    @Nonnull
+    public static List<IndexShard> build(
+            @Nonnull SchemaExportService.SchemaExportData schemaExportData,
+            @Nonnull List<ExportManifestService.RuntimePackage> runtimePackages,
+            boolean concurrent) {
+        List<IndexShard> shards = Collections.synchronizedList(new ArrayList<>());
+        build(schemaExportData, runtimePackages, concurrent, false, false, new ExportStats(), shards::add);
         shards.sort(Comparator.comparing(IndexShard::relativePath));
         return shards;
     }
+
+    /**
+     * Runs every index exporter and hands each shard to {@code sink} as soon as its exporter has finished, in no
+     * particular order across exporters. Exporters read independent inputs, so with {@code concurrent} set each one
+     * runs on a platform thread of its own, where its allocations can be measured, and calls {@code sink} from
+     * there. The sink may block to apply back-pressure;
+     * the exporter then waits before building more. With {@code dictionaryEncodedLocalization} set, localization is
+     * exported in the shared-dictionary layout instead of one key map per locale. With {@code assetNameLookups}
+     * set, every registeredAssets shard is accompanied by its registeredAssetsLookup shard.
+     * <p>
+     * Each exporter is recorded in {@code stats} as an {@code index.*} phase covering the building of its shards,
+     * not the time spent handing them to {@code sink}.
+     */
+    public static void build(
+            @Nonnull SchemaExportService.SchemaExportData schemaExportData,
+            @Nonnull List<ExportManifestService.RuntimePackage> runtimePackages,
+            boolean concurrent,
+            boolean dictionaryEncodedLocalization,
+            boolean assetNameLookups,
+            @Nonnull ExportStats stats,
+            @Nonnull Consumer<IndexShard> sink) {
+        List<Exporter> exporters = List.of(
+                new Exporter("index.commonAssetPaths",
+                        () -> List.of(CommonAssetPathIndexExporter.build(runtimePackages))),
+                new Exporter("index.registeredAssets",
+                        () -> RegisteredAssetIndexExporter.build(schemaExportData.stores(), runtimePackages,
+                                assetNameLookups)),
+                new Exporter("index.exportFamily",
+                        () -> GeneratorIndexExporter.buildExportFamilies(schemaExportData.stores())),
+                new Exporter("index.referenceBundle",
+                        () -> GeneratorIndexExporter.buildReferenceBundles(schemaExportData.stores())),
+                new Exporter("index.localization",
+                        () -> LocalizationIndexExporter.build(runtimePackages, concurrent,
+                                dictionaryEncodedLocalization),
+                        concurrent),
+                new Exporter("index.uiDataSets",
+                        () -> UiDataSetIndexExporter.build(schemaExportData.uiDataSets(), runtimePackages)));
+
+        if (concurrent) {
+            runConcurrently(exporters, stats, sink);
+        } else {
+            for (Exporter exporter : exporters) {
+                exporter.build(stats).forEach(sink);
+            }
+        }
+    }
+
+    /** Total top-level entries across {@code shards}, as recorded for index phases. */
+    public static long countEntries(@Nonnull List<IndexShard> shards) {
+        long entries = 0;
+        for (IndexShard shard : shards) {
+            entries += shard.values().size();
+        }
+        return entries;
+    }
+
+    /**
+     * Rebuilds only the shards affected by a reload of {@code changedAssetClasses}: the registeredAssets shards of
+     * those types and, when a worldgen asset type changed, every exportFamily and referenceBundle shard. With
+     * {@code assetNameLookups} set, the registeredAssetsLookup shards of those types are rebuilt too.
+     */
+    @Nonnull
+    public static IncrementalIndexBuild buildForChangedAssetTypes(
+            @Nonnull AssetStore<?, ?, ?>[] stores,
+            @Nonnull Set<Class<?>> changedAssetClasses,
+            boolean assetNameLookups) {
+        List<AssetStore<?, ?, ?>> changedStores = new ArrayList<>();
+        for (AssetStore<?, ?, ?> store : stores) {
+            if (changedAssetClasses.contains(store.getAssetClass())) {
+                changedStores.add(store);
+            }
+        }
+
+        List<IndexShard> shards = new ArrayList<>(
+                RegisteredAssetIndexExporter.buildStoreBacked(changedStores.toArray(AssetStore[]::new),
+                        assetNameLookups));
+        Set<String> rebuiltDirectories = new TreeSet<>();
+        if (changedStores.stream()
+                .anyMatch(store -> GeneratorIndexExporter.contributesExportFamilies(store.getAssetClass()))) {
+            shards.addAll(GeneratorIndexExporter.buildExportFamilies(stores));
+            shards.addAll(GeneratorIndexExporter.buildReferenceBundles(stores));
+            rebuiltDirectories.add("exportFamily");
+            rebuiltDirectories.add("referenceBundle");
+        }
+        shards.sort(Comparator.comparing(IndexShard::relativePath));
+        return new IncrementalIndexBuild(shards, rebuiltDirectories);
+    }
+
+    private static void runConcurrently(
+            @Nonnull List<Exporter> exporters,
+            @Nonnull ExportStats stats,
+            @Nonnull Consumer<IndexShard> sink) {
+        try (ExecutorService executor = Executors.newFixedThreadPool(exporters.size(), runnable -> {
+            Thread thread = new Thread(runnable, "HytaleDevtoolsCompanion-IndexExport");
+            thread.setDaemon(true);
+            return thread;
+        })) {
+            List<Future<?>> futures = new ArrayList<>();
+            for (Exporter exporter : exporters) {
+                futures.add(executor.submit(() -> exporter.build(stats).forEach(sink)));
+            }
+
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(exception);
+        } catch (ExecutionException exception) {
+            if (exception.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            if (exception.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw new RuntimeException(exception.getCause());
+        }
+    }
+
+    /** An index exporter recorded as {@code phase}; {@code fansOut} marks one that spreads its work over threads. */
+    private record Exporter(@Nonnull String phase, @Nonnull Supplier<List<IndexShard>> shards, boolean fansOut) {
+        Exporter(@Nonnull String phase, @Nonnull Supplier<List<IndexShard>> shards) {
+            this(phase, shards, false);
+        }
+
+        @Nonnull
+        List<IndexShard> build(@Nonnull ExportStats stats) {
+            return stats.measure(this.phase, this.shards, IndexExportCoordinator::countEntries, this.fansOut);
+        }
+    }
+
+    public record IncrementalIndexBuild(@Nonnull List<IndexShard> shards, @Nonnull Set<String> rebuiltDirectories) {
+    }
 }
@@ -1,9 +1,15 @@
 package kokeria.hytaledevtoolscompanion.assets.index;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Field;
 import java.nio.file.Path;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
@@ -12,11 +18,24 @@ import org.bson.BsonArray;
 import org.bson.BsonNull;
 import org.bson.BsonString;
 import org.bson.BsonValue;
+import org.bson.BsonWriter;
 
 import com.hypixel.hytale.assetstore.AssetMap;
 import com.hypixel.hytale.assetstore.AssetStore;
 
 final class IndexExportUtils {
+    /** Rough per-entry and per-tree-node heap costs behind {@link ShardValues#estimatedBytes()}. */
+    static final long ESTIMATED_ENTRY_BYTES = 32;
+    static final long ESTIMATED_TREE_ENTRY_BYTES = 256;
+
+    private static final MethodType OBJECT_GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+    private static final ClassValue<Map<String, Optional<MethodHandle>>> FIELD_ACCESSORS = new ClassValue<>() {
+        @Override
+        protected Map<String, Optional<MethodHandle>> computeValue(Class<?> type) {
+            return new ConcurrentHashMap<>();
+        }
+    };
+
     private IndexExportUtils() {
     }
 
@@ -140,11 +159,44 @@ final class IndexExportUtils {
             return null;
         }
 
-        for (Class<?> type = target.getClass(); type != null && type != Object.class; type = type.getSuperclass()) {
+        MethodHandle accessor = findFieldAccessor(target.getClass(), fieldName);
+        if (accessor == null) {
+            return null;
+        }
+
+        try {
+            return (Object) accessor.invokeExact(target);
+        } catch (Throwable ignored) {
+            return null;
+        }
+    }
+
+    /**
+     * Getter for the first field named {@code fieldName} declared on {@code type} or a superclass, typed
+     * {@code (Object)Object}. Lookups are cached per class, so repeated reads cost a map lookup.
+     */
+    @Nullable
+    static MethodHandle findFieldAccessor(@Nonnull Class<?> type, @Nonnull String fieldName) {
+        return FIELD_ACCESSORS.get(type)
+                .computeIfAbsent(fieldName, ignored -> Optional.ofNullable(resolveFieldAccessor(type, fieldName)))
+                .orElse(null);
+    }
+
+    @Nullable
+    static MethodHandle unreflectGetter(@Nonnull Field field) {
+        try {
+            field.setAccessible(true);
+            return MethodHandles.lookup().unreflectGetter(field).asType(OBJECT_GETTER_TYPE);
+        } catch (Throwable ignored) {
+            return null;
+        }
+    }
+
+    @Nullable
+    private static MethodHandle resolveFieldAccessor(@Nonnull Class<?> type, @Nonnull String fieldName) {
+        for (Class<?> cursor = type; cursor != null && cursor != Object.class; cursor = cursor.getSuperclass()) {
             try {
-                Field field = type.getDeclaredField(fieldName);
-                field.setAccessible(true);
-                return field.get(target);
+                return unreflectGetter(cursor.getDeclaredField(fieldName));
             } catch (NoSuchFieldException ignored) {
             } catch (Throwable ignored) {
                 return null;
@@ -174,4 +226,16 @@ final class IndexExportUtils {
     static BsonValue nullableString(@Nullable String value) {
         return value == null ? BsonNull.VALUE : new BsonString(value);
     }
+
+    static long estimatedBytes(@Nullable String value) {
+        return value == null ? 0 : 40 + value.length();
+    }
+
+    static void writeNullableString(@Nonnull BsonWriter writer, @Nonnull String name, @Nullable String value) {
+        if (value == null) {
+            writer.writeNull(name);
+        } else {
+            writer.writeString(name, value);
+        }
+    }
 }
@@ -4,56 +4,113 @@ import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 
 import org.bson.BsonDocument;
-import org.bson.BsonInt32;
-import org.bson.BsonString;
-import org.bson.BsonValue;
+import org.bson.BsonDocumentWriter;
+import org.bson.BsonWriter;
 
 public record IndexShard(
         @Nonnull String directory,
         @Nonnull String fileName,
         @Nonnull String indexKind,
         @Nonnull String key,
-        @Nonnull BsonValue values,
+        @Nonnull ShardValues values,
         @Nullable String path,
         @Nullable String extension) {
+    /**
+     * Directory of the {@link BinaryAssetIndex} files. It is kept apart from {@code indexes/}, whose readers expect
+     * every file to be a shard document.
+     */
+    public static final String BINARY_INDEXES_DIRECTORY = "indexes-bin";
+
     @Nonnull
     public String relativePath() {
         return "indexes/" + this.directory + "/" + this.fileName;
     }
 
+    /** Path of the {@link BinaryAssetIndex} of this shard, mirroring its path under {@code indexes/}. */
     @Nonnull
-    public BsonDocument toBsonDocument(@Nonnull String hytaleVersion, @Nonnull String generatedAt) {
-        BsonDocument document = new BsonDocument();
-        document.put("hytaleVersion", new BsonString(hytaleVersion));
-        document.put("generatedAt", new BsonString(generatedAt));
-        document.put("indexKind", new BsonString(this.indexKind));
-        document.put("key", new BsonString(this.key));
-        if ("registeredAssets".equals(this.indexKind)) {
-            document.put("path", IndexExportUtils.nullableString(this.path));
-            document.put("extension", IndexExportUtils.nullableString(this.extension));
-            document.put("assetCount", new BsonInt32(this.values.isDocument() ? this.values.asDocument().size() : 0));
-            document.put("fileCount", new BsonInt32(countFileBackedAssets(this.values)));
-        }
-        document.put("values", this.values);
-        return document;
+    public String binaryIndexRelativePath() {
+        String baseName = this.fileName.substring(0, this.fileName.lastIndexOf('.'));
+        return BINARY_INDEXES_DIRECTORY + "/" + this.directory + "/" + baseName + BinaryAssetIndex.FILE_EXTENSION;
     }
 
-    private static int countFileBackedAssets(@Nonnull BsonValue values) {
-        if (!values.isDocument()) {
-            return 0;
+    /** Whether {@link #toBinaryIndex} encodes this shard. */
+    public boolean hasBinaryIndex() {
+        return this.values instanceof ShardValues.AssetEntries;
+    }
+
+    /** Encodes this shard as a {@link BinaryAssetIndex}, or {@code null} if its values are not asset entries. */
+    @Nullable
+    public byte[] toBinaryIndex(@Nonnull String hytaleVersion) {
+        if (!(this.values instanceof ShardValues.AssetEntries assetEntries)) {
+            return null;
         }
+        return BinaryAssetIndex.encode(hytaleVersion, this.indexKind, this.key, this.path, this.extension,
+                assetEntries.sortedEntries());
+    }
+
+    /**
+     * Streams everything {@link #toBinaryIndex} encodes, tagged with the binary format version, so the binary index
+     * can be digested without being encoded.
+     */
+    public void writeBinaryIndexSource(@Nonnull BsonWriter writer, @Nonnull String hytaleVersion) {
+        writer.writeStartDocument();
+        writer.writeInt32("binaryIndexFormat", BinaryAssetIndex.FORMAT_VERSION);
+        IndexExportUtils.writeNullableString(writer, "path", this.path);
+        IndexExportUtils.writeNullableString(writer, "extension", this.extension);
+        writer.writeName("shard");
+        write(writer, hytaleVersion, null, false);
+        writer.writeEndDocument();
+    }
+
+    public long estimatedBytes() {
+        return IndexExportUtils.ESTIMATED_TREE_ENTRY_BYTES + this.values.estimatedBytes();
+    }
+
+    public void write(@Nonnull BsonWriter writer, @Nonnull String hytaleVersion, @Nullable String generatedAt) {
+        write(writer, hytaleVersion, generatedAt, false);
+    }
 
-        int count = 0;
-        for (BsonValue value : values.asDocument().values()) {
-            if (!value.isDocument()) {
-                continue;
-            }
-            BsonValue sourcedFromFile = value.asDocument().get("sourcedFromFile");
-            if (sourcedFromFile != null && sourcedFromFile.isString()
-                    && !sourcedFromFile.asString().getValue().isBlank()) {
-                count++;
-            }
+    /**
+     * Streams the shard document into {@code writer}. {@code generatedAt} changes on every export, so it is left out
+     * when {@code null}, which is how content digests are computed. With {@code dictionaryEncodedAssetEntries} set,
+     * asset entry values are written in the {@code "layout": "dictionary"} form of
+     * {@link ShardValues.AssetEntries#writeDictionaryEncoded}.
+     */
+    public void write(
+            @Nonnull BsonWriter writer,
+            @Nonnull String hytaleVersion,
+            @Nullable String generatedAt,
+            boolean dictionaryEncodedAssetEntries) {
+        ShardValues.AssetEntries dictionaryEncoded = dictionaryEncodedAssetEntries
+                && this.values instanceof ShardValues.AssetEntries assetEntries ? assetEntries : null;
+        writer.writeStartDocument();
+        writer.writeString("hytaleVersion", hytaleVersion);
+        if (generatedAt != null) {
+            writer.writeString("generatedAt", generatedAt);
+        }
+        writer.writeString("indexKind", this.indexKind);
+        writer.writeString("key", this.key);
+        if ("registeredAssets".equals(this.indexKind)) {
+            IndexExportUtils.writeNullableString(writer, "path", this.path);
+            IndexExportUtils.writeNullableString(writer, "extension", this.extension);
+            writer.writeInt32("assetCount", this.values.size());
+            writer.writeInt32("fileCount", this.values.fileBackedSize());
+        }
+        if (dictionaryEncoded != null) {
+            writer.writeString("layout", "dictionary");
+            writer.writeName("values");
+            dictionaryEncoded.writeDictionaryEncoded(writer);
+        } else {
+            writer.writeName("values");
+            this.values.write(writer);
         }
-        return count;
+        writer.writeEndDocument();
+    }
+
+    @Nonnull
+    public BsonDocument toBsonDocument(@Nonnull String hytaleVersion, @Nonnull String generatedAt) {
+        BsonDocument document = new BsonDocument();
+        write(new BsonDocumentWriter(document), hytaleVersion, generatedAt);
+        return document;
     }
 }
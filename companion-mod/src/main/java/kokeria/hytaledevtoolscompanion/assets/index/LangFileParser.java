@@ -0,0 +1,143 @@
+package kokeria.hytaledevtoolscompanion.assets.index;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.function.BiConsumer;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Parses {@code .lang} files straight from their UTF-8 bytes. Lines end at {@code \n}, {@code \r} or {@code \r\n};
+ * a line ending in a backslash continues on the next one, blank lines and lines starting with {@code #} are skipped,
+ * and every other line is split at its first {@code =} into a trimmed key and translation. Only keys and
+ * translations are decoded, so comments and blank lines cost nothing beyond the scan.
+ */
+final class LangFileParser {
+    private static final byte[] BYTE_ORDER_MARK = {(byte) 0xEF, (byte) 0xBB, (byte) 0xBF};
+
+    private final CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+            .onMalformedInput(CodingErrorAction.REPORT)
+            .onUnmappableCharacter(CodingErrorAction.REPORT);
+    private byte[] continued = new byte[256];
+
+    /**
+     * Calls {@code entryConsumer} with every key and translation in file order.
+     *
+     * @throws CharacterCodingException if a key or translation is not valid UTF-8
+     */
+    void parse(@Nonnull byte[] content, @Nonnull BiConsumer<String, String> entryConsumer)
+            throws CharacterCodingException {
+        int position = startsWithByteOrderMark(content) ? BYTE_ORDER_MARK.length : 0;
+        int continuedLength = 0;
+        while (position < content.length) {
+            int lineEnd = position;
+            while (lineEnd < content.length && content[lineEnd] != '\n' && content[lineEnd] != '\r') {
+                lineEnd++;
+            }
+            int next = lineEnd;
+            if (next < content.length) {
+                next += content[next] == '\r' && next + 1 < content.length && content[next + 1] == '\n' ? 2 : 1;
+            }
+
+            byte[] line = content;
+            int lineStart = position;
+            if (continuedLength > 0) {
+                continuedLength = appendContinued(continuedLength, content, position, lineEnd);
+                line = this.continued;
+                lineStart = 0;
+                lineEnd = continuedLength;
+            }
+            position = next;
+
+            if (lineEnd > lineStart && line[lineEnd - 1] == '\\') {
+                if (line == content) {
+                    continuedLength = appendContinued(0, content, lineStart, lineEnd - 1);
+                } else {
+                    continuedLength--;
+                }
+                continue;
+            }
+            continuedLength = 0;
+            parseLine(line, lineStart, lineEnd, entryConsumer);
+        }
+    }
+
+    private void parseLine(
+            @Nonnull byte[] line,
+            int start,
+            int end,
+            @Nonnull BiConsumer<String, String> entryConsumer) throws CharacterCodingException {
+        int contentStart = skipWhitespace(line, start, end);
+        if (contentStart == end || line[contentStart] == '#') {
+            return;
+        }
+
+        int equalsIndex = start;
+        while (equalsIndex < end && line[equalsIndex] != '=') {
+            equalsIndex++;
+        }
+        if (equalsIndex == start || equalsIndex == end) {
+            return;
+        }
+
+        int keyEnd = trimEnd(line, contentStart, equalsIndex);
+        if (keyEnd == contentStart) {
+            return;
+        }
+
+        int translationStart = skipWhitespace(line, equalsIndex + 1, end);
+        int translationEnd = trimEnd(line, translationStart, end);
+        entryConsumer.accept(
+                decode(line, contentStart, keyEnd),
+                decode(line, translationStart, translationEnd));
+    }
+
+    private int appendContinued(int length, @Nonnull byte[] source, int start, int end) {
+        int required = length + end - start;
+        if (required > this.continued.length) {
+            this.continued = Arrays.copyOf(this.continued, Math.max(required, this.continued.length * 2));
+        }
+        System.arraycopy(source, start, this.continued, length, end - start);
+        return required;
+    }
+
+    @Nonnull
+    private String decode(@Nonnull byte[] bytes, int start, int end) throws CharacterCodingException {
+        for (int i = start; i < end; i++) {
+            if (bytes[i] < 0) {
+                return this.decoder.decode(ByteBuffer.wrap(bytes, start, end - start)).toString();
+            }
+        }
+        return new String(bytes, start, end - start, StandardCharsets.ISO_8859_1);
+    }
+
+    /** Matches {@link String#trim()}: code points up to U+0020 are single bytes in UTF-8. */
+    private static boolean isTrimmed(byte value) {
+        return value >= 0 && value <= ' ';
+    }
+
+    private static int skipWhitespace(@Nonnull byte[] bytes, int start, int end) {
+        while (start < end && isTrimmed(bytes[start])) {
+            start++;
+        }
+        return start;
+    }
+
+    private static int trimEnd(@Nonnull byte[] bytes, int start, int end) {
+        while (end > start && isTrimmed(bytes[end - 1])) {
+            end--;
+        }
+        return end;
+    }
+
+    private static boolean startsWithByteOrderMark(@Nonnull byte[] content) {
+        return content.length >= BYTE_ORDER_MARK.length
+                && content[0] == BYTE_ORDER_MARK[0]
+                && content[1] == BYTE_ORDER_MARK[1]
+                && content[2] == BYTE_ORDER_MARK[2];
+    }
+}
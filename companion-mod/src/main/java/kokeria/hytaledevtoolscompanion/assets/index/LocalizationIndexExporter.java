@@ -1,11 +1,11 @@
 package kokeria.hytaledevtoolscompanion.assets.index;
 
 import java.io.IOException;
-import java.nio.charset.StandardCharsets;
 import java.nio.file.FileVisitOption;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Comparator;
 import java.util.List;
 import java.util.Locale;
@@ -14,64 +14,136 @@ import java.util.Objects;
 import java.util.Set;
 import java.util.TreeMap;
 import java.util.TreeSet;
-import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 
-import org.bson.BsonDocument;
+import org.bson.BsonWriter;
 
 import com.hypixel.hytale.builtin.asseteditor.AssetEditorPlugin;
 import com.hypixel.hytale.builtin.asseteditor.assettypehandler.AssetStoreTypeHandler;
 import com.hypixel.hytale.builtin.asseteditor.assettypehandler.AssetTypeHandler;
 
 import kokeria.hytaledevtoolscompanion.assets.ExportManifestService;
+import kokeria.hytaledevtoolscompanion.assets.PackageFileCatalog;
 
 final class LocalizationIndexExporter {
+    private static final String LANG_EXTENSION = "lang";
+    private static final String FALLBACK_LOCALE = "fallback";
+    private static final String DICTIONARY_DIRECTORY = "localizationDictionary";
+
     private LocalizationIndexExporter() {
     }
 
+    /**
+     * Builds one shard per locale, or with {@code dictionaryEncoded} the shared-dictionary layout. With
+     * {@code concurrent} set the language files are parsed in parallel. A key defined by several files takes its
+     * translation from the file whose path sorts first, and a key repeated within a file keeps its first translation.
+     */
     @Nonnull
     static List<IndexShard> build(
-            @Nonnull List<ExportManifestService.RuntimePackage> runtimePackages) {
+            @Nonnull List<ExportManifestService.RuntimePackage> runtimePackages,
+            boolean concurrent,
+            boolean dictionaryEncoded) {
         Set<Path> languageFiles = new TreeSet<>();
         for (ExportManifestService.RuntimePackage runtimePackage : runtimePackages) {
-            collectLanguageFiles(languageFiles, runtimePackage.root().resolve("Server").resolve("Languages"));
-            collectLanguageFiles(languageFiles, runtimePackage.root().resolve("Common").resolve("Languages"));
+            collectLanguageFiles(languageFiles, runtimePackage.files(), "Server/Languages");
+            collectLanguageFiles(languageFiles, runtimePackage.files(), "Common/Languages");
         }
         collectLanguageFilesFromAssetTypeHandlers(languageFiles);
 
-        Map<String, List<LocalizationRecord>> recordsByLocale = new TreeMap<>();
-        for (Path languageFile : languageFiles) {
-            parseLangFile(languageFile, recordsByLocale);
+        Stream<Path> files = concurrent ? languageFiles.parallelStream() : languageFiles.stream();
+        List<ParsedLangFile> parsedFiles = new ArrayList<>(files
+                .map(LocalizationIndexExporter::parseLangFile)
+                .filter(Objects::nonNull)
+                .toList());
+        parsedFiles.sort(Comparator.comparing(ParsedLangFile::file));
+
+        Map<String, Map<String, String>> translationsByLocale = new TreeMap<>();
+        for (ParsedLangFile parsedFile : parsedFiles) {
+            Map<String, String> translations = translationsByLocale.computeIfAbsent(parsedFile.locale(),
+                    ignored -> new TreeMap<>());
+            for (LocalizationRecord record : parsedFile.records()) {
+                translations.putIfAbsent(record.key(), record.translation());
+            }
+        }
+
+        if (dictionaryEncoded) {
+            return buildDictionaryShards(translationsByLocale);
         }
 
         List<IndexShard> shards = new ArrayList<>();
-        for (Map.Entry<String, List<LocalizationRecord>> entry : recordsByLocale.entrySet()) {
-            BsonDocument values = new BsonDocument();
-            entry.getValue().sort(Comparator.comparing(LocalizationRecord::key)
-                    .thenComparing(value -> Objects.requireNonNullElse(value.file(), "")));
-
-            for (LocalizationRecord record : entry.getValue()) {
-                if (record.key().isBlank() || values.containsKey(record.key())) {
-                    continue;
+        for (Map.Entry<String, Map<String, String>> entry : translationsByLocale.entrySet()) {
+            shards.add(new IndexShard(
+                    "localization",
+                    IndexExportUtils.sanitizeIndexKey(entry.getKey()) + ".json",
+                    "localizationKeys",
+                    entry.getKey(),
+                    ShardValues.stringEntries(new ArrayList<>(entry.getValue().entrySet()), Map.Entry::getKey,
+                            Map.Entry::getValue),
+                    null,
+                    null));
+        }
+        return shards;
+    }
+
+    /**
+     * One {@code keys.json} mapping every key of every locale to its position in sorted key order, plus one shard
+     * per locale next to it whose {@code translations} array is aligned with those positions. A translation the
+     * locale does not define is taken from the fallback locale, or null when that lacks it too; {@code missingKeys}
+     * lists the indexes of all keys the locale does not define itself.
+     */
+    @Nonnull
+    private static List<IndexShard> buildDictionaryShards(
+            @Nonnull Map<String, Map<String, String>> translationsByLocale) {
+        Set<String> keySet = new TreeSet<>();
+        for (Map<String, String> translations : translationsByLocale.values()) {
+            keySet.addAll(translations.keySet());
+        }
+        List<String> keys = new ArrayList<>(keySet);
+
+        List<IndexShard> shards = new ArrayList<>();
+        shards.add(new IndexShard(DICTIONARY_DIRECTORY, "keys.json", "localizationKeyDictionary", "keys",
+                ShardValues.stringPositions(keys), null, null));
+
+        Map<String, String> fallback = translationsByLocale.getOrDefault(FALLBACK_LOCALE, Map.of());
+        for (Map.Entry<String, Map<String, String>> entry : translationsByLocale.entrySet()) {
+            String[] translations = new String[keys.size()];
+            int[] missingKeys = new int[keys.size()];
+            int missingCount = 0;
+            for (int i = 0; i < translations.length; i++) {
+                String translation = entry.getValue().get(keys.get(i));
+                if (translation == null) {
+                    missingKeys[missingCount++] = i;
+                    translation = fallback.get(keys.get(i));
                 }
-                values.put(record.key(), IndexExportUtils.nullableString(record.translation()));
+                translations[i] = translation;
             }
 
             shards.add(new IndexShard(
-                    "localization",
+                    DICTIONARY_DIRECTORY,
                     IndexExportUtils.sanitizeIndexKey(entry.getKey()) + ".json",
-                    "localizationKeys",
+                    "localizationValues",
                     entry.getKey(),
-                    values,
+                    new LocaleTranslations(translations, Arrays.copyOf(missingKeys, missingCount)),
                     null,
                     null));
         }
         return shards;
     }
 
+    private static void collectLanguageFiles(
+            @Nonnull Set<Path> output,
+            @Nonnull PackageFileCatalog files,
+            @Nonnull String languageDirectory) {
+        for (PackageFileCatalog.CatalogEntry entry : files.entriesUnder(languageDirectory)) {
+            if (LANG_EXTENSION.equals(entry.extension())) {
+                output.add(files.resolve(entry).toAbsolutePath().normalize());
+            }
+        }
+    }
+
     private static void collectLanguageFiles(@Nonnull Set<Path> output, @Nonnull Path languageRoot) {
         if (!Files.isDirectory(languageRoot)) {
             return;
@@ -107,106 +179,115 @@ final class LocalizationIndexExporter {
         }
     }
 
-    private static void parseLangFile(
-            @Nonnull Path file,
-            @Nonnull Map<String, List<LocalizationRecord>> recordsByLocale) {
-        List<String> lines;
-        try {
-            lines = Files.readAllLines(file, StandardCharsets.UTF_8);
-        } catch (IOException ignored) {
-            return;
-        }
-
+    @Nullable
+    private static ParsedLangFile parseLangFile(@Nonnull Path file) {
         LangPathInfo pathInfo = resolveLangPathInfo(file);
         if (pathInfo == null) {
-            return;
+            return null;
         }
 
-        StringBuilder pending = new StringBuilder();
-        for (int i = 0; i < lines.size(); i++) {
-            String line = lines.get(i);
-            if (i == 0 && !line.isEmpty() && line.charAt(0) == '\uFEFF') {
-                line = line.substring(1);
-            }
-
-            pending.append(line);
-            if (pending.length() > 0 && pending.charAt(pending.length() - 1) == '\\') {
-                pending.setLength(pending.length() - 1);
-                continue;
-            }
-
-            String complete = pending.toString();
-            pending.setLength(0);
-
-            String trimmed = complete.trim();
-            if (trimmed.isEmpty() || trimmed.startsWith("#")) {
-                continue;
-            }
-
-            int equalsIndex = complete.indexOf('=');
-            if (equalsIndex <= 0) {
-                continue;
-            }
-
-            String localKey = complete.substring(0, equalsIndex).trim();
-            if (localKey.isEmpty()) {
-                continue;
-            }
-
-            String translation = complete.substring(equalsIndex + 1).trim();
-            String fullKey = pathInfo.prefix().isBlank() ? localKey : pathInfo.prefix() + "." + localKey;
-            recordsByLocale.computeIfAbsent(pathInfo.locale(), ignored -> new ArrayList<>())
-                    .add(new LocalizationRecord(fullKey, translation, file.toString()));
+        List<LocalizationRecord> records = new ArrayList<>();
+        try {
+            new LangFileParser().parse(Files.readAllBytes(file), (localKey, translation) -> records.add(
+                    new LocalizationRecord(pathInfo.prefix().isEmpty() ? localKey : pathInfo.prefix() + "." + localKey,
+                            translation)));
+        } catch (IOException ignored) {
+            return null;
         }
+        return new ParsedLangFile(file.toString(), pathInfo.locale(), records);
     }
 
     @Nullable
     private static LangPathInfo resolveLangPathInfo(@Nonnull Path file) {
-        List<String> segments = new ArrayList<>();
-        for (Path segment : file.normalize()) {
-            segments.add(segment.toString());
-        }
-
+        Path normalized = file.normalize();
+        int segmentCount = normalized.getNameCount();
         int languagesIndex = -1;
-        for (int i = 0; i < segments.size(); i++) {
-            if ("Languages".equalsIgnoreCase(segments.get(i))) {
+        for (int i = 0; i < segmentCount; i++) {
+            if ("Languages".equalsIgnoreCase(normalized.getName(i).toString())) {
                 languagesIndex = i;
                 break;
             }
         }
 
-        if (languagesIndex < 0 || languagesIndex + 1 >= segments.size()) {
+        if (languagesIndex < 0 || languagesIndex + 1 >= segmentCount) {
             return null;
         }
 
         int contentStart = languagesIndex + 1;
-        String locale = segments.get(contentStart);
+        String locale = normalized.getName(contentStart).toString();
         if (locale.toLowerCase(Locale.ROOT).endsWith(".lang")) {
-            locale = "fallback";
+            locale = FALLBACK_LOCALE;
         } else {
             contentStart++;
         }
 
-        if (contentStart >= segments.size()) {
+        if (contentStart >= segmentCount) {
             return null;
         }
 
-        List<String> contentSegments = new ArrayList<>(segments.subList(contentStart, segments.size()));
-        String fileName = contentSegments.remove(contentSegments.size() - 1);
+        StringBuilder prefix = new StringBuilder();
+        for (int i = contentStart; i < segmentCount - 1; i++) {
+            appendPrefixSegment(prefix, normalized.getName(i).toString());
+        }
+        String fileName = normalized.getName(segmentCount - 1).toString();
         int dot = fileName.lastIndexOf('.');
-        String stem = dot >= 0 ? fileName.substring(0, dot) : fileName;
-        if (!stem.isBlank()) {
-            contentSegments.add(stem);
+        appendPrefixSegment(prefix, dot >= 0 ? fileName.substring(0, dot) : fileName);
+        return new LangPathInfo(locale, prefix.toString());
+    }
+
+    private static void appendPrefixSegment(@Nonnull StringBuilder prefix, @Nonnull String segment) {
+        if (segment.isBlank()) {
+            return;
+        }
+        if (!prefix.isEmpty()) {
+            prefix.append('.');
         }
+        prefix.append(segment);
+    }
 
-        return new LangPathInfo(locale, contentSegments.stream()
-                .filter(segment -> !segment.isBlank())
-                .collect(Collectors.joining(".")));
+    record LocalizationRecord(@Nonnull String key, @Nonnull String translation) {
     }
 
-    record LocalizationRecord(@Nonnull String key, @Nullable String translation, @Nullable String file) {
+    record ParsedLangFile(@Nonnull String file, @Nonnull String locale, @Nonnull List<LocalizationRecord> records) {
     }
 
     record LangPathInfo(@Nonnull String locale, @Nonnull String prefix) {
     }
+
+    /** Translations aligned with the shared key dictionary; entries may be null. */
+    record LocaleTranslations(@Nonnull String[] translations, @Nonnull int[] missingKeys) implements ShardValues {
+        @Override
+        public void write(@Nonnull BsonWriter writer) {
+            writer.writeStartDocument();
+            writer.writeStartArray("translations");
+            for (String translation : this.translations) {
+                if (translation == null) {
+                    writer.writeNull();
+                } else {
+                    writer.writeString(translation);
+                }
+            }
+            writer.writeEndArray();
+            writer.writeStartArray("missingKeys");
+            for (int missingKey : this.missingKeys) {
+                writer.writeInt32(missingKey);
+            }
+            writer.writeEndArray();
+            writer.writeEndDocument();
+        }
+
+        @Override
+        public int size() {
+            return this.translations.length - this.missingKeys.length;
+        }
+
+        @Override
+        public long estimatedBytes() {
+            long estimatedBytes = (long) Integer.BYTES * this.missingKeys.length;
+            for (String translation : this.translations) {
+                estimatedBytes += IndexExportUtils.ESTIMATED_ENTRY_BYTES + IndexExportUtils.estimatedBytes(translation);
+            }
+            return estimatedBytes;
+        }
+    }
 }
@@ -16,14 +16,13 @@ import java.util.stream.Stream;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 
-import org.bson.BsonDocument;
-
 import com.hypixel.hytale.assetstore.AssetStore;
 import com.hypixel.hytale.builtin.asseteditor.AssetEditorPlugin;
 import com.hypixel.hytale.builtin.asseteditor.assettypehandler.AssetStoreTypeHandler;
 import com.hypixel.hytale.builtin.asseteditor.assettypehandler.AssetTypeHandler;
 
 import kokeria.hytaledevtoolscompanion.assets.ExportManifestService;
+import kokeria.hytaledevtoolscompanion.assets.PackageFileCatalog;
 
 final class RegisteredAssetIndexExporter {
     private RegisteredAssetIndexExporter() {
@@ -32,36 +31,58 @@ final class RegisteredAssetIndexExporter {
     @Nonnull
     static List<IndexShard> build(
             @Nonnull AssetStore<?, ?, ?>[] stores,
-            @Nonnull List<ExportManifestService.RuntimePackage> runtimePackages) {
+            @Nonnull List<ExportManifestService.RuntimePackage> runtimePackages,
+            boolean assetNameLookups) {
         Map<String, RegisteredAssetTypeData> byType = new TreeMap<>();
         collectStoreBackedRegisteredAssets(byType, stores);
         collectHandlerBackedRegisteredAssets(byType, runtimePackages);
+        return toShards(byType, assetNameLookups);
+    }
 
+    /**
+     * Builds shards for the asset types of the given stores only. Handler-backed assets are not store types and are
+     * not reloaded through asset store events, so they are left out.
+     */
+    @Nonnull
+    static List<IndexShard> buildStoreBacked(@Nonnull AssetStore<?, ?, ?>[] stores, boolean assetNameLookups) {
+        Map<String, RegisteredAssetTypeData> byType = new TreeMap<>();
+        collectStoreBackedRegisteredAssets(byType, stores);
+        return toShards(byType, assetNameLookups);
+    }
+
+    /**
+     * Each type gets its registeredAssets shard, plus an {@link AssetNameLookup} shard for its names with
+     * {@code assetNameLookups} set.
+     */
+    @Nonnull
+    private static List<IndexShard> toShards(
+            @Nonnull Map<String, RegisteredAssetTypeData> byType,
+            boolean assetNameLookups) {
         List<IndexShard> shards = new ArrayList<>();
         for (Map.Entry<String, RegisteredAssetTypeData> entry : byType.entrySet()) {
-            BsonDocument values = new BsonDocument();
-            entry.getValue().entries().sort(Comparator.comparing(RegisteredAssetEntry::name)
+            entry.getValue().entries().sort(Comparator.comparing(AssetSourceEntry::name)
                     .thenComparing(value -> Objects.requireNonNullElse(value.sourcedFromFile(), "")));
 
-            for (RegisteredAssetEntry asset : entry.getValue().entries()) {
-                if (asset.name().isBlank() || values.containsKey(asset.name())) {
-                    continue;
-                }
-
-                BsonDocument details = new BsonDocument();
-                details.put("sourcedFromFile", IndexExportUtils.nullableString(asset.sourcedFromFile()));
-                details.put("package", IndexExportUtils.nullableString(asset.packageName()));
-                values.put(asset.name(), details);
-            }
-
+            String fileName = IndexExportUtils.sanitizeIndexKey(entry.getKey()) + ".json";
             shards.add(new IndexShard(
                     "registeredAssets",
-                    IndexExportUtils.sanitizeIndexKey(entry.getKey()) + ".json",
+                    fileName,
                     "registeredAssets",
                     entry.getKey(),
-                    values,
+                    ShardValues.assetEntries(entry.getValue().entries()),
                     entry.getValue().path(),
                     entry.getValue().extension()));
+            if (!assetNameLookups) {
+                continue;
+            }
+            shards.add(new IndexShard(
+                    "registeredAssetsLookup",
+                    fileName,
+                    "registeredAssetsLookup",
+                    entry.getKey(),
+                    AssetNameLookup.build(entry.getValue().entries().stream().map(AssetSourceEntry::name).toList()),
+                    null,
+                    null));
         }
         return shards;
     }
@@ -89,7 +110,7 @@ final class RegisteredAssetIndexExporter {
                 }
 
                 Path filePath = IndexExportUtils.getPathForKey(store, key);
-                typeData.entries().add(new RegisteredAssetEntry(
+                typeData.entries().add(new AssetSourceEntry(
                         name,
                         filePath == null ? null : filePath.toString(),
                         IndexExportUtils.getPackageForKey(store, key)));
@@ -132,49 +153,81 @@ final class RegisteredAssetIndexExporter {
             }
             typeData.path = typeData.path == null ? path : typeData.path;
             typeData.extension = typeData.extension == null ? extension : typeData.extension;
-            RegisteredAssetTypeData targetTypeData = typeData;
-
             if (path == null || extension == null) {
                 continue;
             }
 
             for (ExportManifestService.RuntimePackage runtimePackage : runtimePackages) {
-                Path assetRoot = runtimePackage.root().resolve(path).normalize();
-                if (!Files.isDirectory(assetRoot)) {
-                    continue;
-                }
+                collectHandlerFiles(runtimePackage, path, extension, typeData.entries());
+            }
+        }
+    }
 
-                try (Stream<Path> stream = Files.walk(assetRoot, Integer.MAX_VALUE, FileVisitOption.FOLLOW_LINKS)) {
-                    stream.filter(Files::isRegularFile)
-                            .filter(file -> file.getFileName().toString().toLowerCase(Locale.ROOT)
-                                    .endsWith(extension.toLowerCase(Locale.ROOT)))
-                            .sorted()
-                            .forEach(file -> {
-                                String relativeName = IndexExportUtils.trimSuffixIgnoreCase(
-                                        IndexExportUtils.toUnixPathString(assetRoot.relativize(file)),
-                                        extension);
-                                if (relativeName.isBlank()) {
-                                    return;
-                                }
-
-                                String sourcedFromFile = IndexExportUtils
-                                        .toUnixPathString(runtimePackage.root().relativize(file));
-                                targetTypeData.entries().add(new RegisteredAssetEntry(
-                                        relativeName,
-                                        sourcedFromFile,
-                                        runtimePackage.name()));
-                            });
-                } catch (IOException ignored) {
-                    // best-effort collection
-                }
+    static void collectHandlerFiles(
+            @Nonnull ExportManifestService.RuntimePackage runtimePackage,
+            @Nonnull String path,
+            @Nonnull String extension,
+            @Nonnull List<AssetSourceEntry> output) {
+        Path assetRoot = runtimePackage.root().resolve(path).normalize();
+        if (!assetRoot.startsWith(runtimePackage.root())) {
+            collectHandlerFilesOutsidePackage(runtimePackage, assetRoot, extension, output);
+            return;
+        }
+
+        String relativeRoot = IndexExportUtils.toUnixPathString(runtimePackage.root().relativize(assetRoot));
+        String lowerExtension = extension.toLowerCase(Locale.ROOT);
+        int nameStart = relativeRoot.isEmpty() ? 0 : relativeRoot.length() + 1;
+        for (PackageFileCatalog.CatalogEntry entry : runtimePackage.files().entriesUnder(relativeRoot)) {
+            if (!entry.fileName().toLowerCase(Locale.ROOT).endsWith(lowerExtension)) {
+                continue;
             }
+
+            String relativeName = IndexExportUtils.trimSuffixIgnoreCase(entry.relativePath().substring(nameStart),
+                    extension);
+            if (relativeName.isBlank()) {
+                continue;
+            }
+
+            output.add(new AssetSourceEntry(relativeName, entry.relativePath(), runtimePackage.name()));
+        }
+    }
+
+    private static void collectHandlerFilesOutsidePackage(
+            @Nonnull ExportManifestService.RuntimePackage runtimePackage,
+            @Nonnull Path assetRoot,
+            @Nonnull String extension,
+            @Nonnull List<AssetSourceEntry> output) {
+        if (!Files.isDirectory(assetRoot)) {
+            return;
+        }
+
+        try (Stream<Path> stream = Files.walk(assetRoot, Integer.MAX_VALUE, FileVisitOption.FOLLOW_LINKS)) {
+            stream.filter(Files::isRegularFile)
+                    .filter(file -> file.getFileName().toString().toLowerCase(Locale.ROOT)
+                            .endsWith(extension.toLowerCase(Locale.ROOT)))
+                    .sorted()
+                    .forEach(file -> {
+                        String relativeName = IndexExportUtils.trimSuffixIgnoreCase(
+                                IndexExportUtils.toUnixPathString(assetRoot.relativize(file)),
+                                extension);
+                        if (relativeName.isBlank()) {
+                            return;
+                        }
+
+                        output.add(new AssetSourceEntry(
+                                relativeName,
+                                IndexExportUtils.toUnixPathString(runtimePackage.root().relativize(file)),
+                                runtimePackage.name()));
+                    });
+        } catch (IOException | IllegalArgumentException ignored) {
+            // best-effort collection
         }
     }
 
     static final class RegisteredAssetTypeData {
         private String path;
         private String extension;
-        private final List<RegisteredAssetEntry> entries = new ArrayList<>();
+        private final List<AssetSourceEntry> entries = new ArrayList<>();
 
         private RegisteredAssetTypeData(@Nullable String path, @Nullable String extension) {
             this.path = path;
@@ -192,11 +245,8 @@ final class RegisteredAssetIndexExporter {
         }
 
         @Nonnull
-        List<RegisteredAssetEntry> entries() {
+        List<AssetSourceEntry> entries() {
             return this.entries;
         }
     }
-
-    record RegisteredAssetEntry(@Nonnull String name, @Nullable String sourcedFromFile, @Nullable String packageName) {
-    }
 }
@@ -0,0 +1,323 @@
+package kokeria.hytaledevtoolscompanion.assets.index;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import org.bson.BsonValue;
+import org.bson.BsonWriter;
+import org.bson.codecs.BsonValueCodec;
+import org.bson.codecs.EncoderContext;
+
+/**
+ * The {@code values} of an index shard. Large shards keep their entries as compact sorted lists and stream them
+ * straight into the artifact writer, so no {@code BsonDocument} tree is built for them.
+ */
+public interface ShardValues {
+    /** Writes the values as a single BSON value at the writer's current position. */
+    void write(@Nonnull BsonWriter writer);
+
+    /** Number of top-level entries written. */
+    int size();
+
+    /** Number of top-level entries backed by a source file. */
+    default int fileBackedSize() {
+        return 0;
+    }
+
+    /** Rough heap footprint of the values, used to bound how many built shards wait for the writer. */
+    long estimatedBytes();
+
+    @Nonnull
+    static ShardValues of(@Nonnull BsonValue value) {
+        return new Tree(value);
+    }
+
+    /**
+     * Asset entries keyed by name. {@code sortedEntries} must be sorted by name; blank names are skipped and only
+     * the first entry per name is kept.
+     */
+    @Nonnull
+    static ShardValues assetEntries(@Nonnull List<AssetSourceEntry> sortedEntries) {
+        int size = 0;
+        int fileBackedSize = 0;
+        long estimatedBytes = 0;
+        String previousName = null;
+        for (AssetSourceEntry entry : sortedEntries) {
+            estimatedBytes += IndexExportUtils.ESTIMATED_ENTRY_BYTES
+                    + IndexExportUtils.estimatedBytes(entry.name())
+                    + IndexExportUtils.estimatedBytes(entry.sourcedFromFile())
+                    + IndexExportUtils.estimatedBytes(entry.packageName());
+            if (entry.name().isBlank() || entry.name().equals(previousName)) {
+                continue;
+            }
+            previousName = entry.name();
+            size++;
+            if (entry.sourcedFromFile() != null && !entry.sourcedFromFile().isBlank()) {
+                fileBackedSize++;
+            }
+        }
+        return new AssetEntries(sortedEntries, size, fileBackedSize, estimatedBytes);
+    }
+
+    /**
+     * String values keyed by {@code keyFunction}. {@code sortedEntries} must be sorted by key; blank keys are skipped
+     * and only the first entry per key is kept.
+     */
+    @Nonnull
+    static <T> ShardValues stringEntries(
+            @Nonnull List<T> sortedEntries,
+            @Nonnull Function<T, String> keyFunction,
+            @Nonnull Function<T, String> valueFunction) {
+        int size = 0;
+        long estimatedBytes = 0;
+        String previousKey = null;
+        for (T entry : sortedEntries) {
+            String key = keyFunction.apply(entry);
+            estimatedBytes += IndexExportUtils.ESTIMATED_ENTRY_BYTES
+                    + IndexExportUtils.estimatedBytes(key)
+                    + IndexExportUtils.estimatedBytes(valueFunction.apply(entry));
+            if (key.isBlank() || key.equals(previousKey)) {
+                continue;
+            }
+            previousKey = key;
+            size++;
+        }
+        return new StringEntries<>(sortedEntries, keyFunction, valueFunction, size, estimatedBytes);
+    }
+
+    /** Each of the distinct {@code values} mapped to its position in the list. */
+    @Nonnull
+    static ShardValues stringPositions(@Nonnull List<String> values) {
+        long estimatedBytes = 0;
+        for (String value : values) {
+            estimatedBytes += IndexExportUtils.ESTIMATED_ENTRY_BYTES + IndexExportUtils.estimatedBytes(value);
+        }
+        return new StringPositions(values, estimatedBytes);
+    }
+
+    /** File names grouped by folder and then by file type, written in map iteration order. */
+    @Nonnull
+    static ShardValues fileNamesByFolder(@Nonnull Map<String, Map<String, Set<String>>> fileNamesByFolder) {
+        long estimatedBytes = 0;
+        for (Map.Entry<String, Map<String, Set<String>>> folderEntry : fileNamesByFolder.entrySet()) {
+            estimatedBytes += IndexExportUtils.ESTIMATED_ENTRY_BYTES
+                    + IndexExportUtils.estimatedBytes(folderEntry.getKey());
+            for (Set<String> fileNames : folderEntry.getValue().values()) {
+                for (String fileName : fileNames) {
+                    estimatedBytes += IndexExportUtils.ESTIMATED_ENTRY_BYTES
+                            + IndexExportUtils.estimatedBytes(fileName);
+                }
+            }
+        }
+        return new FileNamesByFolder(fileNamesByFolder, estimatedBytes);
+    }
+
+    record Tree(@Nonnull BsonValue value) implements ShardValues {
+        private static final BsonValueCodec VALUE_CODEC = new BsonValueCodec();
+
+        @Override
+        public void write(@Nonnull BsonWriter writer) {
+            VALUE_CODEC.encode(writer, this.value, EncoderContext.builder().build());
+        }
+
+        @Override
+        public int size() {
+            return this.value.isDocument() ? this.value.asDocument().size() : 0;
+        }
+
+        @Override
+        public long estimatedBytes() {
+            int entries = this.value.isDocument() ? this.value.asDocument().size()
+                    : this.value.isArray() ? this.value.asArray().size() : 0;
+            return IndexExportUtils.ESTIMATED_TREE_ENTRY_BYTES * (1 + entries);
+        }
+
+        @Override
+        public int fileBackedSize() {
+            if (!this.value.isDocument()) {
+                return 0;
+            }
+
+            int count = 0;
+            for (BsonValue entry : this.value.asDocument().values()) {
+                if (!entry.isDocument()) {
+                    continue;
+                }
+                BsonValue sourcedFromFile = entry.asDocument().get("sourcedFromFile");
+                if (sourcedFromFile != null && sourcedFromFile.isString()
+                        && !sourcedFromFile.asString().getValue().isBlank()) {
+                    count++;
+                }
+            }
+            return count;
+        }
+    }
+
+    record AssetEntries(
+            @Nonnull List<AssetSourceEntry> sortedEntries,
+            int size,
+            int fileBackedSize,
+            long estimatedBytes) implements ShardValues {
+        @Override
+        public void write(@Nonnull BsonWriter writer) {
+            writer.writeStartDocument();
+            String previousName = null;
+            for (AssetSourceEntry entry : this.sortedEntries) {
+                if (entry.name().isBlank() || entry.name().equals(previousName)) {
+                    continue;
+                }
+                previousName = entry.name();
+                writer.writeStartDocument(entry.name());
+                IndexExportUtils.writeNullableString(writer, "sourcedFromFile", entry.sourcedFromFile());
+                IndexExportUtils.writeNullableString(writer, "package", entry.packageName());
+                writer.writeEndDocument();
+            }
+            writer.writeEndDocument();
+        }
+
+        /**
+         * Writes the same entries with their repeated strings moved into tables: {@code packages} and
+         * {@code directories} list each distinct package and sourcedFromFile directory once, in order of first use,
+         * and {@code entries} maps every name to {@code [packageIndex, directoryIndex, fileName]}. A directory keeps
+         * its trailing separator, so {@code sourcedFromFile} is the directory followed by the file name. Null
+         * packages and sourcedFromFile values stay null.
+         */
+        public void writeDictionaryEncoded(@Nonnull BsonWriter writer) {
+            Map<String, Integer> packages = new LinkedHashMap<>();
+            Map<String, Integer> directories = new LinkedHashMap<>();
+            String previousName = null;
+            for (AssetSourceEntry entry : this.sortedEntries) {
+                if (entry.name().isBlank() || entry.name().equals(previousName)) {
+                    continue;
+                }
+                previousName = entry.name();
+                if (entry.packageName() != null) {
+                    packages.putIfAbsent(entry.packageName(), packages.size());
+                }
+                if (entry.sourcedFromFile() != null) {
+                    directories.putIfAbsent(directoryOf(entry.sourcedFromFile()), directories.size());
+                }
+            }
+
+            writer.writeStartDocument();
+            writeStrings(writer, "packages", packages.keySet());
+            writeStrings(writer, "directories", directories.keySet());
+            writer.writeStartDocument("entries");
+            previousName = null;
+            for (AssetSourceEntry entry : this.sortedEntries) {
+                if (entry.name().isBlank() || entry.name().equals(previousName)) {
+                    continue;
+                }
+                previousName = entry.name();
+                writer.writeStartArray(entry.name());
+                writeNullableInt32(writer, entry.packageName() == null ? null : packages.get(entry.packageName()));
+                String sourcedFromFile = entry.sourcedFromFile();
+                if (sourcedFromFile == null) {
+                    writer.writeNull();
+                    writer.writeNull();
+                } else {
+                    String directory = directoryOf(sourcedFromFile);
+                    writer.writeInt32(directories.get(directory));
+                    writer.writeString(sourcedFromFile.substring(directory.length()));
+                }
+                writer.writeEndArray();
+            }
+            writer.writeEndDocument();
+            writer.writeEndDocument();
+        }
+
+        @Nonnull
+        private static String directoryOf(@Nonnull String sourcedFromFile) {
+            int separator = Math.max(sourcedFromFile.lastIndexOf('/'), sourcedFromFile.lastIndexOf('\\'));
+            return sourcedFromFile.substring(0, separator + 1);
+        }
+
+        private static void writeStrings(
+                @Nonnull BsonWriter writer,
+                @Nonnull String name,
+                @Nonnull Iterable<String> values) {
+            writer.writeStartArray(name);
+            for (String value : values) {
+                writer.writeString(value);
+            }
+            writer.writeEndArray();
+        }
+
+        private static void writeNullableInt32(@Nonnull BsonWriter writer, @Nullable Integer value) {
+            if (value == null) {
+                writer.writeNull();
+            } else {
+                writer.writeInt32(value);
+            }
+        }
+    }
+
+    record StringEntries<T>(
+            @Nonnull List<T> sortedEntries,
+            @Nonnull Function<T, String> keyFunction,
+            @Nonnull Function<T, String> valueFunction,
+            int size,
+            long estimatedBytes) implements ShardValues {
+        @Override
+        public void write(@Nonnull BsonWriter writer) {
+            writer.writeStartDocument();
+            String previousKey = null;
+            for (T entry : this.sortedEntries) {
+                String key = this.keyFunction.apply(entry);
+                if (key.isBlank() || key.equals(previousKey)) {
+                    continue;
+                }
+                previousKey = key;
+                IndexExportUtils.writeNullableString(writer, key, this.valueFunction.apply(entry));
+            }
+            writer.writeEndDocument();
+        }
+    }
+
+    record StringPositions(@Nonnull List<String> values, long estimatedBytes) implements ShardValues {
+        @Override
+        public void write(@Nonnull BsonWriter writer) {
+            writer.writeStartDocument();
+            for (int i = 0; i < this.values.size(); i++) {
+                writer.writeInt32(this.values.get(i), i);
+            }
+            writer.writeEndDocument();
+        }
+
+        @Override
+        public int size() {
+            return this.values.size();
+        }
+    }
+
+    record FileNamesByFolder(@Nonnull Map<String, Map<String, Set<String>>> fileNamesByFolder, long estimatedBytes)
+            implements ShardValues {
+        @Override
+        public void write(@Nonnull BsonWriter writer) {
+            writer.writeStartDocument();
+            for (Map.Entry<String, Map<String, Set<String>>> folderEntry : this.fileNamesByFolder.entrySet()) {
+                writer.writeStartDocument(folderEntry.getKey());
+                for (Map.Entry<String, Set<String>> typeEntry : folderEntry.getValue().entrySet()) {
+                    writer.writeStartArray(typeEntry.getKey());
+                    for (String fileName : typeEntry.getValue()) {
+                        writer.writeString(fileName);
+                    }
+                    writer.writeEndArray();
+                }
+                writer.writeEndDocument();
+            }
+            writer.writeEndDocument();
+        }
+
+        @Override
+        public int size() {
+            return this.fileNamesByFolder.size();
+        }
+    }
+}
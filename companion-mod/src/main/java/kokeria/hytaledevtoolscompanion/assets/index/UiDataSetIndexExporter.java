@@ -8,7 +8,6 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
-import java.util.Map;
 import java.util.Set;
 import java.util.logging.Logger;
 
@@ -34,9 +33,8 @@ final class UiDataSetIndexExporter {
 
     @Nonnull
     static List<IndexShard> build(
-            @Nonnull Map<String, BsonDocument> schemaDocuments,
+            @Nonnull Set<String> referencedDataSets,
             @Nonnull List<ExportManifestService.RuntimePackage> runtimePackages) {
-        Set<String> referencedDataSets = collectReferencedDataSets(schemaDocuments);
         if (referencedDataSets.isEmpty()) {
             return List.of();
         }
@@ -61,7 +59,7 @@ final class UiDataSetIndexExporter {
                         IndexExportUtils.sanitizeIndexKey(dataSet) + ".json",
                         "uiDataSet",
                         dataSet,
-                        values,
+                        ShardValues.of(values),
                         null,
                         null));
             } else if (!knownDataSet && LOGGED_UNKNOWN_DATA_SETS.add(dataSet)) {
@@ -75,7 +73,7 @@ final class UiDataSetIndexExporter {
                     "GradientSets.json",
                     "uiDataSet",
                     "GradientSets",
-                    gradientSets,
+                    ShardValues.of(gradientSets),
                     null,
                     null));
         }
@@ -86,59 +84,6 @@ final class UiDataSetIndexExporter {
         return referencedDataSets.contains("GradientSets") || referencedDataSets.contains("GradientIds");
     }
 
-    @Nonnull
-    private static Set<String> collectReferencedDataSets(@Nonnull Map<String, BsonDocument> schemaDocuments) {
-        Set<String> dataSets = new HashSet<>();
-        for (BsonDocument schemaDocument : schemaDocuments.values()) {
-            collectReferencedDataSetsRecursive(schemaDocument, dataSets);
-        }
-        return dataSets;
-    }
-
-    private static void collectReferencedDataSetsRecursive(@Nonnull BsonValue value, @Nonnull Set<String> dataSets) {
-        if (value.isDocument()) {
-            BsonDocument document = value.asDocument();
-            String dataSet = findUiDataSetKey(document);
-            if (dataSet != null) {
-                dataSets.add(dataSet);
-            }
-            for (BsonValue child : document.values()) {
-                if (child != null) {
-                    collectReferencedDataSetsRecursive(child, dataSets);
-                }
-            }
-            return;
-        }
-
-        if (value.isArray()) {
-            for (BsonValue child : value.asArray()) {
-                if (child != null) {
-                    collectReferencedDataSetsRecursive(child, dataSets);
-                }
-            }
-        }
-    }
-
-    @Nullable
-    private static String findUiDataSetKey(@Nonnull BsonDocument node) {
-        BsonDocument hytale = getDocument(node, "hytale");
-        BsonDocument uiEditorComponent = hytale == null ? null : getDocument(hytale, "uiEditorComponent");
-        if (uiEditorComponent == null) {
-            return null;
-        }
-
-        String component = stringValue(uiEditorComponent, "component");
-        if (!"Text".equals(component) && !"Dropdown".equals(component)) {
-            return null;
-        }
-
-        String key = stringValue(uiEditorComponent, "key");
-        if (key == null || key.isBlank()) {
-            key = stringValue(uiEditorComponent, "dataSet");
-        }
-        return key == null || key.isBlank() ? null : key;
-    }
-
     @Nonnull
     private static BsonArray blockGroups() {
         List<String> groups = new ArrayList<>();
@@ -0,0 +1,193 @@
+package kokeria.hytaledevtoolscompanion.assets.schema;
+
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import org.bson.BsonDocument;
+import org.bson.BsonString;
+import org.bson.BsonValue;
+
+/**
+ * Splits shared definition documents such as {@code other.json} into one document per definition, so consumers can
+ * load only the definitions they reference.
+ * <p>
+ * A shared document only has {@code $id}, {@code $schema} and {@code definitions} at the top level. Each of its
+ * definitions moves to {@code <document>/<definition>.json} under the same {@code /definitions/<name>} pointer, so
+ * rewriting a {@code $ref} only changes its file part. {@value #CATALOG_FILE} maps every split definition to its file.
+ */
+public final class SchemaDefinitionSplitter {
+    public static final String CATALOG_FILE = "definitionCatalog.json";
+
+    private static final String DEFINITIONS_KEY = "definitions";
+    private static final String DEFINITIONS_POINTER = "/" + DEFINITIONS_KEY + "/";
+    private static final Set<String> SHARED_DOCUMENT_KEYS = Set.of("$id", "$schema", DEFINITIONS_KEY);
+
+    private SchemaDefinitionSplitter() {
+    }
+
+    /**
+     * Returns the schema documents with every shared definition document replaced by per-definition documents and
+     * the catalog, and every {@code $ref} into a split document rewritten. Definition nodes are moved, not copied, so
+     * metadata added by {@link SchemaMetadataAugmenter} beforehand travels with them.
+     */
+    @Nonnull
+    public static Map<String, BsonDocument> split(@Nonnull Map<String, BsonDocument> schemaDocuments) {
+        Map<String, Map<String, String>> definitionFiles = new TreeMap<>();
+        Map<String, BsonDocument> result = new TreeMap<>();
+        Set<String> usedFileNames = new HashSet<>();
+
+        for (Map.Entry<String, BsonDocument> entry : schemaDocuments.entrySet()) {
+            if (!isSharedDefinitionDocument(entry.getValue())) {
+                result.put(entry.getKey(), entry.getValue());
+                continue;
+            }
+
+            String directory = stripJsonExtension(entry.getKey());
+            Map<String, String> filesByDefinition = new LinkedHashMap<>();
+            BsonValue schemaVersion = entry.getValue().get("$schema");
+            for (Map.Entry<String, BsonValue> definition : entry.getValue().getDocument(DEFINITIONS_KEY).entrySet()) {
+                String file = uniqueFileName(directory, definition.getKey(), usedFileNames);
+                filesByDefinition.put(definition.getKey(), file);
+
+                BsonDocument definitions = new BsonDocument();
+                definitions.put(definition.getKey(), definition.getValue());
+                BsonDocument document = new BsonDocument();
+                document.put("$id", new BsonString(file));
+                if (schemaVersion != null) {
+                    document.put("$schema", schemaVersion);
+                }
+                document.put(DEFINITIONS_KEY, definitions);
+                result.put(file, document);
+            }
+            definitionFiles.put(entry.getKey(), filesByDefinition);
+        }
+
+        if (definitionFiles.isEmpty()) {
+            return schemaDocuments;
+        }
+
+        for (Map.Entry<String, BsonDocument> entry : schemaDocuments.entrySet()) {
+            rewriteRefs(entry.getValue(), entry.getKey(), definitionFiles);
+        }
+        result.put(CATALOG_FILE, buildCatalog(definitionFiles));
+        return result;
+    }
+
+    private static boolean isSharedDefinitionDocument(@Nonnull BsonDocument document) {
+        BsonValue definitions = document.get(DEFINITIONS_KEY);
+        return definitions != null && definitions.isDocument() && SHARED_DOCUMENT_KEYS.containsAll(document.keySet());
+    }
+
+    private static void rewriteRefs(
+            @Nonnull BsonValue value,
+            @Nonnull String baseFile,
+            @Nonnull Map<String, Map<String, String>> definitionFiles) {
+        if (value.isArray()) {
+            for (BsonValue element : value.asArray()) {
+                rewriteRefs(element, baseFile, definitionFiles);
+            }
+            return;
+        }
+        if (!value.isDocument()) {
+            return;
+        }
+
+        BsonDocument document = value.asDocument();
+        for (Map.Entry<String, BsonValue> entry : document.entrySet()) {
+            if ("$ref".equals(entry.getKey()) && entry.getValue().isString()) {
+                String rewritten = rewriteRef(entry.getValue().asString().getValue(), baseFile, definitionFiles);
+                if (rewritten != null) {
+                    entry.setValue(new BsonString(rewritten));
+                }
+            } else if (entry.getValue().isDocument() || entry.getValue().isArray()) {
+                rewriteRefs(entry.getValue(), baseFile, definitionFiles);
+            }
+        }
+    }
+
+    @Nullable
+    private static String rewriteRef(
+            @Nonnull String ref,
+            @Nonnull String baseFile,
+            @Nonnull Map<String, Map<String, String>> definitionFiles) {
+        int hashIndex = ref.indexOf('#');
+        if (hashIndex < 0) {
+            return null;
+        }
+
+        String file = hashIndex == 0 ? baseFile : ref.substring(0, hashIndex);
+        Map<String, String> filesByDefinition = definitionFiles.get(file);
+        String pointer = ref.substring(hashIndex + 1);
+        if (filesByDefinition == null || !pointer.startsWith(DEFINITIONS_POINTER)) {
+            return null;
+        }
+
+        int nameEnd = pointer.indexOf('/', DEFINITIONS_POINTER.length());
+        String escapedName = nameEnd < 0
+                ? pointer.substring(DEFINITIONS_POINTER.length())
+                : pointer.substring(DEFINITIONS_POINTER.length(), nameEnd);
+        String targetFile = filesByDefinition.get(unescapeJsonPointer(escapedName));
+        return targetFile == null ? null : targetFile + "#" + pointer;
+    }
+
+    @Nonnull
+    private static BsonDocument buildCatalog(@Nonnull Map<String, Map<String, String>> definitionFiles) {
+        BsonDocument documents = new BsonDocument();
+        for (Map.Entry<String, Map<String, String>> entry : definitionFiles.entrySet()) {
+            BsonDocument definitions = new BsonDocument();
+            for (Map.Entry<String, String> definition : entry.getValue().entrySet()) {
+                definitions.put(definition.getKey(), new BsonString(definition.getValue()));
+            }
+            documents.put(entry.getKey(), definitions);
+        }
+
+        BsonDocument catalog = new BsonDocument();
+        catalog.put("$id", new BsonString(CATALOG_FILE));
+        catalog.put("documents", documents);
+        return catalog;
+    }
+
+    @Nonnull
+    private static String uniqueFileName(
+            @Nonnull String directory,
+            @Nonnull String definitionName,
+            @Nonnull Set<String> usedFileNames) {
+        String baseName = directory + "/" + sanitizeFileName(definitionName);
+        String candidate = baseName + ".json";
+        for (int suffix = 2; !usedFileNames.add(candidate.toLowerCase(Locale.ROOT)); suffix++) {
+            candidate = baseName + "_" + suffix + ".json";
+        }
+        return candidate;
+    }
+
+    @Nonnull
+    private static String sanitizeFileName(@Nonnull String definitionName) {
+        StringBuilder builder = new StringBuilder(definitionName.length());
+        for (int i = 0; i < definitionName.length(); i++) {
+            char character = definitionName.charAt(i);
+            boolean safe = character >= 'a' && character <= 'z'
+                    || character >= 'A' && character <= 'Z'
+                    || character >= '0' && character <= '9'
+                    || character == '-' || character == '_' || character == '.';
+            builder.append(safe ? character : '_');
+        }
+        return builder.isEmpty() ? "_" : builder.toString();
+    }
+
+    @Nonnull
+    private static String stripJsonExtension(@Nonnull String fileName) {
+        return fileName.endsWith(".json") ? fileName.substring(0, fileName.length() - ".json".length()) : fileName;
+    }
+
+    @Nonnull
+    private static String unescapeJsonPointer(@Nonnull String token) {
+        return token.replace("~1", "/").replace("~0", "~");
+    }
+}
@@ -1,9 +1,13 @@
 package kokeria.hytaledevtoolscompanion.assets.schema;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Comparator;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.TreeMap;
+import java.util.stream.Stream;
 
 import javax.annotation.Nonnull;
 
@@ -21,22 +25,85 @@ public final class SchemaExportService {
 
     @Nonnull
     public static SchemaExportData generate() {
+        return generate(true);
+    }
+
+    /**
+     * Generates and encodes every asset schema. With {@code concurrent} set the schemas are encoded in parallel;
+     * the resulting documents are keyed by file name either way, so their order does not depend on it.
+     * <p>
+     * Encoding in parallel relies on {@link Schema#CODEC} being safe to share: the generator returns a separate
+     * {@link Schema} tree per asset type, the codec only reads it and builds a new document, and
+     * {@link EmptyExtraInfo#EMPTY} carries no per-call state. The server does not document this as a contract, so
+     * {@code ForceSequentialExport} turns {@code concurrent} off should a server update break it.
+     */
+    @Nonnull
+    public static SchemaExportData generate(boolean concurrent) {
         Map<String, Schema> schemas = SchemaGenerator.generateAssetSchemas();
+        AssetStore<?, ?, ?>[] stores = collectStores();
 
-        AssetStore<?, ?, ?>[] stores = AssetRegistry.getStoreMap().values().toArray(AssetStore[]::new);
-        Arrays.sort(stores, Comparator.comparing(store -> store.getAssetClass().getSimpleName()));
+        List<Map.Entry<String, Schema>> entries = new ArrayList<>(schemas.entrySet());
+        Stream<Map.Entry<String, Schema>> stream = concurrent ? entries.parallelStream() : entries.stream();
+        List<EncodedSchema> encodedSchemas = stream.map(SchemaExportService::encode).toList();
 
         Map<String, BsonDocument> schemaDocuments = new TreeMap<>();
-        for (Map.Entry<String, Schema> entry : schemas.entrySet()) {
-            schemaDocuments.put(entry.getKey(),
-                    Schema.CODEC.encode(entry.getValue(), EmptyExtraInfo.EMPTY).asDocument());
+        Map<String, Long> encodeNanos = new TreeMap<>();
+        for (EncodedSchema encodedSchema : encodedSchemas) {
+            schemaDocuments.put(encodedSchema.fileName(), encodedSchema.document());
+            encodeNanos.put(encodedSchema.fileName(), encodedSchema.durationNanos());
         }
 
-        return new SchemaExportData(schemaDocuments, stores);
+        return new SchemaExportData(schemaDocuments, stores, Set.of(), encodeNanos);
+    }
+
+    @Nonnull
+    private static EncodedSchema encode(@Nonnull Map.Entry<String, Schema> entry) {
+        long startedAt = System.nanoTime();
+        BsonDocument document = Schema.CODEC.encode(entry.getValue(), EmptyExtraInfo.EMPTY).asDocument();
+        return new EncodedSchema(entry.getKey(), document, System.nanoTime() - startedAt);
+    }
+
+    /**
+     * Adds devtools metadata to the generated schemas and collects the uiDataSets they reference, in a single walk
+     * over the schema trees.
+     */
+    @Nonnull
+    public static SchemaExportData augment(@Nonnull SchemaExportData generated) {
+        UiDataSetReferenceCollector uiDataSets = new UiDataSetReferenceCollector();
+        SchemaWalker.walk(generated.schemaDocuments(), List.of(
+                new SchemaMetadataAugmenter(generated.schemaDocuments()),
+                uiDataSets));
+        return new SchemaExportData(generated.schemaDocuments(), generated.stores(), uiDataSets.dataSets(),
+                generated.encodeNanos());
+    }
+
+    /**
+     * Export data for an export that carries over the previously written schemas: no schema documents, only the
+     * asset stores and the uiDataSets recorded for those schemas.
+     */
+    @Nonnull
+    public static SchemaExportData withoutSchemas(@Nonnull Set<String> uiDataSets) {
+        return new SchemaExportData(Map.of(), collectStores(), uiDataSets, Map.of());
+    }
+
+    @Nonnull
+    public static AssetStore<?, ?, ?>[] collectStores() {
+        AssetStore<?, ?, ?>[] stores = AssetRegistry.getStoreMap().values().toArray(AssetStore[]::new);
+        Arrays.sort(stores, Comparator.comparing(store -> store.getAssetClass().getSimpleName()));
+        return stores;
     }
 
     public record SchemaExportData(
             @Nonnull Map<String, BsonDocument> schemaDocuments,
-            @Nonnull AssetStore<?, ?, ?>[] stores) {
+            @Nonnull AssetStore<?, ?, ?>[] stores,
+            @Nonnull Set<String> uiDataSets,
+            @Nonnull Map<String, Long> encodeNanos) {
+        @Nonnull
+        public SchemaExportData withSchemaDocuments(@Nonnull Map<String, BsonDocument> schemaDocuments) {
+            return new SchemaExportData(schemaDocuments, this.stores, this.uiDataSets, this.encodeNanos);
+        }
+    }
+
+    private record EncodedSchema(@Nonnull String fileName, @Nonnull BsonDocument document, long durationNanos) {
     }
 }
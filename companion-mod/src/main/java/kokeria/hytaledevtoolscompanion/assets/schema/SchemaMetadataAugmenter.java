@@ -5,9 +5,6 @@ import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.TreeMap;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
@@ -17,32 +14,28 @@ import org.bson.BsonDocument;
 import org.bson.BsonString;
 import org.bson.BsonValue;
 
-public final class SchemaMetadataAugmenter {
-    private static final Pattern IMPORTED_FAMILY_PROPERTY_PATTERN = Pattern
-            .compile("^common\\.json#/definitions/Imported(.+)Asset/properties/Name$");
-    private static final Pattern EXPORT_AS_COMMON_PATTERN = Pattern
-            .compile("^common\\.json#/definitions/(.+)Asset/properties/ExportAs$");
-
-    private static final List<HiddenRegistryRule> HIDDEN_REGISTRY_RULES = List.of(
-            new HiddenRegistryRule("common.json#/definitions/MaterialAsset/properties/Solid", "BlockType"),
-            new HiddenRegistryRule("common.json#/definitions/MaterialAsset/properties/Fluid", "Fluid"),
-            new HiddenRegistryRule("common.json#/definitions/ConstantEnvironmentProviderAsset/properties/Environment",
+/** Replaces the {@value SchemaWalker#METADATA_KEY} metadata of every schema node it visits. */
+final class SchemaMetadataAugmenter implements SchemaVisitor {
+    private static final String COMMON_DEFINITIONS_PREFIX = "common.json#/definitions/";
+    private static final String IMPORTED_FAMILY_PREFIX = COMMON_DEFINITIONS_PREFIX + "Imported";
+    private static final String IMPORTED_FAMILY_SUFFIX = "Asset/properties/Name";
+    private static final String EXPORT_AS_SUFFIX = "Asset/properties/ExportAs";
+
+    private static final Map<String, String> HIDDEN_REGISTRY_DOMAINS = Map.ofEntries(
+            Map.entry("common.json#/definitions/MaterialAsset/properties/Solid", "BlockType"),
+            Map.entry("common.json#/definitions/MaterialAsset/properties/Fluid", "Fluid"),
+            Map.entry("common.json#/definitions/ConstantEnvironmentProviderAsset/properties/Environment",
                     "Environment"),
-            new HiddenRegistryRule("common.json#/definitions/ConnectedBlockPatternRule/properties/BlockTypes",
-                    "BlockType"),
-            new HiddenRegistryRule("common.json#/definitions/ConnectedBlockPatternRule/properties/BlockTypeLists",
+            Map.entry("common.json#/definitions/ConnectedBlockPatternRule/properties/BlockTypes", "BlockType"),
+            Map.entry("common.json#/definitions/ConnectedBlockPatternRule/properties/BlockTypeLists",
                     "BlockTypeListAsset"),
-            new HiddenRegistryRule("common.json#/definitions/DurabilityLossBlockTypes/properties/BlockTypes",
-                    "BlockType"),
-            new HiddenRegistryRule("common.json#/definitions/DurabilityLossBlockTypes/properties/BlockSets",
-                    "BlockSet"),
-            new HiddenRegistryRule("common.json#/definitions/DefaultFluidTicker/properties/SupportedBy", "Fluid"),
-            new HiddenRegistryRule("common.json#/definitions/FireFluidTicker/properties/SupportedBy", "Fluid"),
-            new HiddenRegistryRule("common.json#/definitions/FiniteFluidTicker/properties/SupportedBy", "Fluid"),
-            new HiddenRegistryRule("common.json#/definitions/FluidCollisionConfig/properties/BlockToPlace",
-                    "BlockType"),
-            new HiddenRegistryRule("common.json#/definitions/FlammabilityConfig/properties/ResultingBlock",
-                    "BlockType"));
+            Map.entry("common.json#/definitions/DurabilityLossBlockTypes/properties/BlockTypes", "BlockType"),
+            Map.entry("common.json#/definitions/DurabilityLossBlockTypes/properties/BlockSets", "BlockSet"),
+            Map.entry("common.json#/definitions/DefaultFluidTicker/properties/SupportedBy", "Fluid"),
+            Map.entry("common.json#/definitions/FireFluidTicker/properties/SupportedBy", "Fluid"),
+            Map.entry("common.json#/definitions/FiniteFluidTicker/properties/SupportedBy", "Fluid"),
+            Map.entry("common.json#/definitions/FluidCollisionConfig/properties/BlockToPlace", "BlockType"),
+            Map.entry("common.json#/definitions/FlammabilityConfig/properties/ResultingBlock", "BlockType"));
 
     private static final Set<String> DECIMAL_CONSTANT_CONSUMER_KEYS = Set.of(
             "common.json#/definitions/BaseHeightDensityAsset/properties/BaseHeightName",
@@ -52,60 +45,65 @@ public final class SchemaMetadataAugmenter {
             "common.json#/definitions/ColumnLinearScannerAsset/properties/BaseHeightName",
             "common.json#/definitions/ColumnRandomScannerAsset/properties/BaseHeightName");
 
-    private SchemaMetadataAugmenter() {
-    }
-
-    public static void augment(@Nonnull Map<String, BsonDocument> schemaDocuments) {
-        Map<String, SchemaNodeRef> schemaNodes = collectSchemaNodes(schemaDocuments);
-        Set<String> decimalConstantDefinitionKeys = findDecimalConstantDefinitionKeys(schemaDocuments);
+    private final Set<String> decimalConstantDefinitionKeys;
 
-        for (SchemaNodeRef nodeRef : schemaNodes.values()) {
-            nodeRef.node().remove("hytaleDevtools");
+    SchemaMetadataAugmenter(@Nonnull Map<String, BsonDocument> schemaDocuments) {
+        this.decimalConstantDefinitionKeys = findDecimalConstantDefinitionKeys(schemaDocuments);
+    }
 
-            BsonDocument metadata = new BsonDocument();
-            BsonDocument symbolRef = buildSymbolRef(nodeRef);
-            BsonDocument definesSymbol = buildDefinesSymbol(nodeRef, decimalConstantDefinitionKeys);
-            if (symbolRef != null) {
-                metadata.put("symbolRef", symbolRef);
-            }
-            if (definesSymbol != null) {
-                metadata.put("definesSymbol", definesSymbol);
-            }
-            if (!metadata.isEmpty()) {
-                nodeRef.node().put("hytaleDevtools", metadata);
-            }
+    /** The key-based rules all name property schemas, so other nodes never need their key built. */
+    @Override
+    public void visitNode(@Nonnull BsonDocument node, @Nonnull SchemaWalker.NodePosition position) {
+        String propertyKey = position.isPropertySchema() ? position.key() : null;
+        node.remove(SchemaWalker.METADATA_KEY);
+
+        BsonDocument metadata = new BsonDocument();
+        BsonDocument symbolRef = buildSymbolRef(node, propertyKey);
+        BsonDocument definesSymbol = propertyKey == null
+                ? null
+                : buildDefinesSymbol(propertyKey, this.decimalConstantDefinitionKeys);
+        if (symbolRef != null) {
+            metadata.put("symbolRef", symbolRef);
+        }
+        if (definesSymbol != null) {
+            metadata.put("definesSymbol", definesSymbol);
+        }
+        if (!metadata.isEmpty()) {
+            node.put(SchemaWalker.METADATA_KEY, metadata);
         }
     }
 
+    /** {@code propertyKey} is the node's {@code file#pointer} key, or null when the node is not a property schema. */
     @Nullable
-    private static BsonDocument buildSymbolRef(@Nonnull SchemaNodeRef nodeRef) {
-        String propertyKey = nodeRef.key();
-        String importFamily = importFamilyReference(propertyKey);
-        if (importFamily != null) {
-            return indexRef("exportFamily", importFamily);
-        }
+    private static BsonDocument buildSymbolRef(@Nonnull BsonDocument node, @Nullable String propertyKey) {
+        if (propertyKey != null) {
+            String importFamily = importFamilyReference(propertyKey);
+            if (importFamily != null) {
+                return indexRef("exportFamily", importFamily);
+            }
 
-        if (DECIMAL_CONSTANT_CONSUMER_KEYS.contains(propertyKey)) {
-            return indexRef("referenceBundle", "DecimalConstants");
-        }
+            if (DECIMAL_CONSTANT_CONSUMER_KEYS.contains(propertyKey)) {
+                return indexRef("referenceBundle", "DecimalConstants");
+            }
 
-        String hiddenRegistryDomain = hiddenRegistryDomain(propertyKey);
-        if (hiddenRegistryDomain != null) {
-            return indexRef("registeredAssets", hiddenRegistryDomain);
+            String hiddenRegistryDomain = HIDDEN_REGISTRY_DOMAINS.get(propertyKey);
+            if (hiddenRegistryDomain != null) {
+                return indexRef("registeredAssets", hiddenRegistryDomain);
+            }
         }
 
-        String hytaleAssetRef = stringValue(nodeRef.node(), "hytaleAssetRef");
+        String hytaleAssetRef = stringValue(node, "hytaleAssetRef");
         if (hytaleAssetRef != null && !hytaleAssetRef.isBlank()) {
             return indexRef("registeredAssets", hytaleAssetRef);
         }
 
-        BsonDocument hytaleParent = getDocument(nodeRef.node(), "hytaleParent");
+        BsonDocument hytaleParent = getDocument(node, "hytaleParent");
         String parentType = hytaleParent == null ? null : stringValue(hytaleParent, "type");
         if (parentType != null && !parentType.isBlank()) {
             return indexRef("registeredAssets", parentType);
         }
 
-        BsonDocument hytaleCommonAsset = getDocument(nodeRef.node(), "hytaleCommonAsset");
+        BsonDocument hytaleCommonAsset = getDocument(node, "hytaleCommonAsset");
         if (hytaleCommonAsset != null) {
             List<String> folders = bsonStringArray(hytaleCommonAsset.get("requiredRoots"));
             if (!folders.isEmpty()) {
@@ -119,7 +117,7 @@ public final class SchemaMetadataAugmenter {
             }
         }
 
-        String uiDataSetKey = findUiDataSetKey(nodeRef.node());
+        String uiDataSetKey = UiDataSetReferenceCollector.findUiDataSetKey(node);
         if (uiDataSetKey != null) {
             return indexRef("uiDataSet", uiDataSetKey);
         }
@@ -129,9 +127,8 @@ public final class SchemaMetadataAugmenter {
 
     @Nullable
     private static BsonDocument buildDefinesSymbol(
-            @Nonnull SchemaNodeRef nodeRef,
+            @Nonnull String propertyKey,
             @Nonnull Set<String> decimalConstantDefinitionKeys) {
-        String propertyKey = nodeRef.key();
         String exportFamily = exportFamilyDefinition(propertyKey);
         if (exportFamily != null) {
             return indexRef("exportFamily", exportFamily);
@@ -149,9 +146,7 @@ public final class SchemaMetadataAugmenter {
         if ("BlockMaskAsset.json#/properties/Import".equals(propertyKey)) {
             return "BlockMask";
         }
-
-        Matcher matcher = IMPORTED_FAMILY_PROPERTY_PATTERN.matcher(propertyKey);
-        return matcher.matches() ? matcher.group(1) : null;
+        return between(propertyKey, IMPORTED_FAMILY_PREFIX, IMPORTED_FAMILY_SUFFIX);
     }
 
     @Nullable
@@ -159,39 +154,29 @@ public final class SchemaMetadataAugmenter {
         if ("BlockMaskAsset.json#/properties/ExportAs".equals(propertyKey)) {
             return "BlockMask";
         }
-
-        Matcher matcher = EXPORT_AS_COMMON_PATTERN.matcher(propertyKey);
-        return matcher.matches() ? matcher.group(1) : null;
+        return between(propertyKey, COMMON_DEFINITIONS_PREFIX, EXPORT_AS_SUFFIX);
     }
 
+    /**
+     * Returns the non-empty text between {@code prefix} and {@code suffix} when {@code value} is exactly that, or null.
+     * Text spanning a line break is rejected, like a {@code .+} wildcard would.
+     */
     @Nullable
-    private static String hiddenRegistryDomain(@Nonnull String propertyKey) {
-        for (HiddenRegistryRule rule : HIDDEN_REGISTRY_RULES) {
-            if (rule.propertyKey().equals(propertyKey)) {
-                return rule.domain();
-            }
-        }
-        return null;
-    }
-
-    @Nullable
-    private static String findUiDataSetKey(@Nonnull BsonDocument node) {
-        BsonDocument hytale = getDocument(node, "hytale");
-        BsonDocument uiEditorComponent = hytale == null ? null : getDocument(hytale, "uiEditorComponent");
-        if (uiEditorComponent == null) {
-            return null;
-        }
-
-        String component = stringValue(uiEditorComponent, "component");
-        if (!"Text".equals(component) && !"Dropdown".equals(component)) {
+    private static String between(@Nonnull String value, @Nonnull String prefix, @Nonnull String suffix) {
+        if (value.length() <= prefix.length() + suffix.length()
+                || !value.startsWith(prefix)
+                || !value.endsWith(suffix)) {
             return null;
         }
 
-        String key = stringValue(uiEditorComponent, "key");
-        if (key == null || key.isBlank()) {
-            key = stringValue(uiEditorComponent, "dataSet");
+        String middle = value.substring(prefix.length(), value.length() - suffix.length());
+        for (int i = 0; i < middle.length(); i++) {
+            char c = middle.charAt(i);
+            if (c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029') {
+                return null;
+            }
         }
-        return key == null || key.isBlank() ? null : key;
+        return middle;
     }
 
     @Nonnull
@@ -228,44 +213,6 @@ public final class SchemaMetadataAugmenter {
         return keys;
     }
 
-    @Nonnull
-    private static Map<String, SchemaNodeRef> collectSchemaNodes(@Nonnull Map<String, BsonDocument> schemaDocuments) {
-        Map<String, SchemaNodeRef> schemaNodes = new TreeMap<>();
-        for (Map.Entry<String, BsonDocument> entry : schemaDocuments.entrySet()) {
-            collectSchemaNodesRecursive(entry.getKey(), "", entry.getValue(), schemaNodes);
-        }
-        return schemaNodes;
-    }
-
-    private static void collectSchemaNodesRecursive(
-            @Nonnull String schemaFile,
-            @Nonnull String pointer,
-            @Nonnull BsonValue value,
-            @Nonnull Map<String, SchemaNodeRef> schemaNodes) {
-        if (value.isDocument()) {
-            BsonDocument document = value.asDocument();
-            schemaNodes.put(schemaFile + "#" + pointer, new SchemaNodeRef(schemaFile, pointer, document));
-
-            List<String> keys = new ArrayList<>(document.keySet());
-            keys.sort(String::compareTo);
-            for (String key : keys) {
-                BsonValue child = document.get(key);
-                if (child != null) {
-                    collectSchemaNodesRecursive(schemaFile, appendJsonPointer(pointer, key), child, schemaNodes);
-                }
-            }
-            return;
-        }
-
-        if (value.isArray()) {
-            BsonArray array = value.asArray();
-            for (int i = 0; i < array.size(); i++) {
-                collectSchemaNodesRecursive(schemaFile, appendJsonPointer(pointer, String.valueOf(i)), array.get(i),
-                        schemaNodes);
-            }
-        }
-    }
-
     @Nonnull
     private static BsonDocument indexRef(@Nonnull String indexKind, @Nonnull String key) {
         BsonDocument document = new BsonDocument();
@@ -321,24 +268,4 @@ public final class SchemaMetadataAugmenter {
         }
         return array;
     }
-
-    @Nonnull
-    private static String appendJsonPointer(@Nonnull String pointer, @Nonnull String token) {
-        return pointer.isEmpty() ? "/" + escapeJsonPointer(token) : pointer + "/" + escapeJsonPointer(token);
-    }
-
-    @Nonnull
-    private static String escapeJsonPointer(@Nonnull String token) {
-        return token.replace("~", "~0").replace("/", "~1");
-    }
-
-    record HiddenRegistryRule(@Nonnull String propertyKey, @Nonnull String domain) {
-    }
-
-    record SchemaNodeRef(@Nonnull String schemaFile, @Nonnull String pointer, @Nonnull BsonDocument node) {
-        @Nonnull
-        String key() {
-            return this.schemaFile + "#" + this.pointer;
-        }
-    }
 }
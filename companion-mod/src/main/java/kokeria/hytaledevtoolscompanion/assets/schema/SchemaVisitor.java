@@ -0,0 +1,18 @@
+package kokeria.hytaledevtoolscompanion.assets.schema;
+
+import javax.annotation.Nonnull;
+
+import org.bson.BsonDocument;
+
+/**
+ * A pass over generated schemas that {@link SchemaWalker} runs together with every other registered visitor, so
+ * adding one does not add another walk over the schema trees.
+ */
+@FunctionalInterface
+public interface SchemaVisitor {
+    /**
+     * Called once for every object node, after all of its descendants. {@code position} is only valid during the
+     * call. A visitor may modify {@code node} itself but not its ancestors.
+     */
+    void visitNode(@Nonnull BsonDocument node, @Nonnull SchemaWalker.NodePosition position);
+}
@@ -0,0 +1,126 @@
+package kokeria.hytaledevtoolscompanion.assets.schema;
+
+import java.util.List;
+import java.util.Map;
+
+import javax.annotation.Nonnull;
+
+import org.bson.BsonArray;
+import org.bson.BsonDocument;
+import org.bson.BsonValue;
+
+/**
+ * Walks schema documents depth-first once and hands every object node to each registered {@link SchemaVisitor}, in
+ * registration order. Nodes are visited after their children, so metadata a visitor adds to a node is never walked;
+ * neither are existing {@value #METADATA_KEY} subtrees, which only hold such metadata.
+ */
+public final class SchemaWalker {
+    public static final String METADATA_KEY = "hytaleDevtools";
+    private static final String PROPERTIES_TOKEN = "properties";
+
+    private SchemaWalker() {
+    }
+
+    public static void walk(
+            @Nonnull Map<String, BsonDocument> schemaDocuments,
+            @Nonnull List<? extends SchemaVisitor> visitors) {
+        if (visitors.isEmpty()) {
+            return;
+        }
+
+        for (Map.Entry<String, BsonDocument> entry : schemaDocuments.entrySet()) {
+            new NodePosition(entry.getKey(), visitors).visit(entry.getValue(), false, false);
+        }
+    }
+
+    /**
+     * Where the current node sits. The node's {@code file#pointer} key is kept in a single buffer that grows and
+     * shrinks with the walk, and is only turned into a string when a visitor asks for it.
+     */
+    public static final class NodePosition {
+        private final String schemaFile;
+        private final List<? extends SchemaVisitor> visitors;
+        private final StringBuilder key;
+        private boolean propertySchema;
+        private String currentKey;
+
+        private NodePosition(@Nonnull String schemaFile, @Nonnull List<? extends SchemaVisitor> visitors) {
+            this.schemaFile = schemaFile;
+            this.visitors = visitors;
+            this.key = new StringBuilder(128).append(schemaFile).append('#');
+        }
+
+        @Nonnull
+        public String schemaFile() {
+            return this.schemaFile;
+        }
+
+        /** Whether the node is the schema of a named property, i.e. a direct child of a {@code properties} node. */
+        public boolean isPropertySchema() {
+            return this.propertySchema;
+        }
+
+        /** The node's {@code file#pointer} key, with pointer tokens escaped as in RFC 6901. */
+        @Nonnull
+        public String key() {
+            if (this.currentKey == null) {
+                this.currentKey = this.key.toString();
+            }
+            return this.currentKey;
+        }
+
+        private void visit(@Nonnull BsonValue value, boolean propertyNode, boolean childrenAreProperties) {
+            if (value.isDocument()) {
+                BsonDocument document = value.asDocument();
+                for (Map.Entry<String, BsonValue> child : document.entrySet()) {
+                    if (METADATA_KEY.equals(child.getKey()) || !isContainer(child.getValue())) {
+                        continue;
+                    }
+
+                    int length = this.key.length();
+                    appendEscapedToken(child.getKey());
+                    visit(child.getValue(), childrenAreProperties, PROPERTIES_TOKEN.equals(child.getKey()));
+                    this.key.setLength(length);
+                }
+
+                this.propertySchema = propertyNode;
+                this.currentKey = null;
+                for (SchemaVisitor visitor : this.visitors) {
+                    visitor.visitNode(document, this);
+                }
+                return;
+            }
+
+            BsonArray array = value.asArray();
+            for (int i = 0; i < array.size(); i++) {
+                BsonValue element = array.get(i);
+                if (!isContainer(element)) {
+                    continue;
+                }
+
+                int length = this.key.length();
+                this.key.append('/').append(i);
+                visit(element, childrenAreProperties, false);
+                this.key.setLength(length);
+            }
+        }
+
+        private void appendEscapedToken(@Nonnull String token) {
+            this.key.append('/');
+            for (int i = 0; i < token.length(); i++) {
+                char c = token.charAt(i);
+                if (c == '~') {
+                    this.key.append("~0");
+                } else if (c == '/') {
+                    this.key.append("~1");
+                } else {
+                    this.key.append(c);
+                }
+            }
+        }
+
+        private static boolean isContainer(@Nonnull BsonValue value) {
+            return value.isDocument() || value.isArray();
+        }
+    }
+}
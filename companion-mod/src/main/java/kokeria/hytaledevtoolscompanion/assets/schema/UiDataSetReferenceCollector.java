@@ -0,0 +1,60 @@
+package kokeria.hytaledevtoolscompanion.assets.schema;
+
+import java.util.Set;
+import java.util.TreeSet;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import org.bson.BsonDocument;
+import org.bson.BsonValue;
+
+/** Collects the uiDataSet keys referenced by Text and Dropdown editor components. */
+final class UiDataSetReferenceCollector implements SchemaVisitor {
+    private final Set<String> dataSets = new TreeSet<>();
+
+    @Override
+    public void visitNode(@Nonnull BsonDocument node, @Nonnull SchemaWalker.NodePosition position) {
+        String dataSet = findUiDataSetKey(node);
+        if (dataSet != null) {
+            this.dataSets.add(dataSet);
+        }
+    }
+
+    @Nonnull
+    Set<String> dataSets() {
+        return this.dataSets;
+    }
+
+    @Nullable
+    static String findUiDataSetKey(@Nonnull BsonDocument node) {
+        BsonDocument hytale = getDocument(node, "hytale");
+        BsonDocument uiEditorComponent = hytale == null ? null : getDocument(hytale, "uiEditorComponent");
+        if (uiEditorComponent == null) {
+            return null;
+        }
+
+        String component = stringValue(uiEditorComponent, "component");
+        if (!"Text".equals(component) && !"Dropdown".equals(component)) {
+            return null;
+        }
+
+        String key = stringValue(uiEditorComponent, "key");
+        if (key == null || key.isBlank()) {
+            key = stringValue(uiEditorComponent, "dataSet");
+        }
+        return key == null || key.isBlank() ? null : key;
+    }
+
+    @Nullable
+    private static BsonDocument getDocument(@Nonnull BsonDocument document, @Nonnull String key) {
+        BsonValue value = document.get(key);
+        return value != null && value.isDocument() ? value.asDocument() : null;
+    }
+
+    @Nullable
+    private static String stringValue(@Nonnull BsonDocument document, @Nonnull String key) {
+        BsonValue value = document.get(key);
+        return value != null && value.isString() ? value.asString().getValue() : null;
+    }
+}
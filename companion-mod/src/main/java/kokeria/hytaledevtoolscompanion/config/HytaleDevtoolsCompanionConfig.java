@@ -13,9 +13,91 @@ public class HytaleDevtoolsCompanionConfig {
                     (config, info) -> config.exportPath)
             .documentation("Absolute path to export generated files to. Empty uses the plugin data directory.")
             .add()
+            .append(
+                    new KeyedCodec<>("ForceSequentialExport", Codec.BOOLEAN),
+                    (config, value, info) -> config.forceSequentialExport = value,
+                    (config, info) -> config.forceSequentialExport)
+            .documentation("Runs every export stage one after another on the calling thread. Intended for debugging.")
+            .add()
+            .append(
+                    new KeyedCodec<>("MaxInFlightWrites", Codec.INTEGER),
+                    (config, value, info) -> config.maxInFlightWrites = value,
+                    (config, info) -> config.maxInFlightWrites)
+            .documentation("Maximum number of export files serialized and written at the same time.")
+            .add()
+            .append(
+                    new KeyedCodec<>("LiveExport", Codec.BOOLEAN),
+                    (config, value, info) -> config.liveExport = value,
+                    (config, info) -> config.liveExport)
+            .documentation("Re-exports affected indexes when assets are reloaded while the server is running.")
+            .add()
+            .append(
+                    new KeyedCodec<>("LiveExportDebounceMillis", Codec.INTEGER),
+                    (config, value, info) -> config.liveExportDebounceMillis = value,
+                    (config, info) -> config.liveExportDebounceMillis)
+            .documentation("Quiet period after the last asset reload event before the live re-export runs.")
+            .add()
+            .append(
+                    new KeyedCodec<>("ArtifactFormat", Codec.STRING),
+                    (config, value, info) -> config.artifactFormat = value,
+                    (config, info) -> config.artifactFormat)
+            .documentation("Encoding of exported schemas and indexes: \"json\" (default) or binary \"bson\".")
+            .add()
+            .append(
+                    new KeyedCodec<>("SplitSharedSchemaDefinitions", Codec.BOOLEAN),
+                    (config, value, info) -> config.splitSharedSchemaDefinitions = value,
+                    (config, info) -> config.splitSharedSchemaDefinitions)
+            .documentation("Writes each definition of shared schema files such as other.json to its own file.")
+            .add()
+            .append(
+                    new KeyedCodec<>("ExportMemoryBudgetMegabytes", Codec.INTEGER),
+                    (config, value, info) -> config.exportMemoryBudgetMegabytes = value,
+                    (config, info) -> config.exportMemoryBudgetMegabytes)
+            .documentation("Approximate memory that index shards queued for writing may hold. Exporters wait "
+                    + "before queueing more while it is used up; shards still being built are not counted.")
+            .add()
+            .append(
+                    new KeyedCodec<>("DictionaryEncodedLocalization", Codec.BOOLEAN),
+                    (config, value, info) -> config.dictionaryEncodedLocalization = value,
+                    (config, info) -> config.dictionaryEncodedLocalization)
+            .documentation("Exports localization as one shared key list plus per-locale translations aligned to it, "
+                    + "with fallback translations already applied, instead of a full key map per locale.")
+            .add()
+            .append(
+                    new KeyedCodec<>("BinaryIndexShards", Codec.BOOLEAN),
+                    (config, value, info) -> config.binaryIndexShards = value,
+                    (config, info) -> config.binaryIndexShards)
+            .documentation("Also writes registeredAssets and exportFamily shards as .idx files under indexes-bin/ "
+                    + "that can be memory mapped and queried without parsing.")
+            .add()
+            .append(
+                    new KeyedCodec<>("DictionaryEncodedAssetEntries", Codec.BOOLEAN),
+                    (config, value, info) -> config.dictionaryEncodedAssetEntries = value,
+                    (config, info) -> config.dictionaryEncodedAssetEntries)
+            .documentation("Writes registeredAssets and exportFamily shards with per-shard package and directory "
+                    + "tables that entries refer to by index, instead of repeating both in every entry.")
+            .add()
+            .append(
+                    new KeyedCodec<>("AssetNameLookups", Codec.BOOLEAN),
+                    (config, value, info) -> config.assetNameLookups = value,
+                    (config, info) -> config.assetNameLookups)
+            .documentation("Also writes a registeredAssetsLookup shard per asset type with prefix and trigram "
+                    + "tables for searching its asset names.")
+            .add()
             .build();
 
     private String exportPath = "";
+    private boolean forceSequentialExport = false;
+    private int maxInFlightWrites = 8;
+    private boolean liveExport = true;
+    private int liveExportDebounceMillis = 500;
+    private String artifactFormat = "json";
+    private boolean splitSharedSchemaDefinitions = false;
+    private int exportMemoryBudgetMegabytes = 64;
+    private boolean dictionaryEncodedLocalization = false;
+    private boolean binaryIndexShards = false;
+    private boolean dictionaryEncodedAssetEntries = false;
+    private boolean assetNameLookups = false;
 
     public HytaleDevtoolsCompanionConfig() {
     }
@@ -23,4 +105,48 @@ public class HytaleDevtoolsCompanionConfig {
     public String getExportPath() {
         return exportPath;
     }
+
+    public boolean isForceSequentialExport() {
+        return forceSequentialExport;
+    }
+
+    public int getMaxInFlightWrites() {
+        return maxInFlightWrites;
+    }
+
+    public boolean isLiveExport() {
+        return liveExport;
+    }
+
+    public int getLiveExportDebounceMillis() {
+        return liveExportDebounceMillis;
+    }
+
+    public String getArtifactFormat() {
+        return artifactFormat;
+    }
+
+    public boolean isSplitSharedSchemaDefinitions() {
+        return splitSharedSchemaDefinitions;
+    }
+
+    public int getExportMemoryBudgetMegabytes() {
+        return exportMemoryBudgetMegabytes;
+    }
+
+    public boolean isDictionaryEncodedLocalization() {
+        return dictionaryEncodedLocalization;
+    }
+
+    public boolean isBinaryIndexShards() {
+        return binaryIndexShards;
+    }
+
+    public boolean isDictionaryEncodedAssetEntries() {
+        return dictionaryEncodedAssetEntries;
+    }
+
+    public boolean isAssetNameLookups() {
+        return assetNameLookups;
+    }
 }
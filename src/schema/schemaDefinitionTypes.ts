@@ -230,6 +230,12 @@ export type CommonSchemaFile = {
   definitions: Record<string, SchemaDefinition>;
 };
 
+/** Maps each split shared document (e.g. "common.json") to its per-definition files by name */
+export type SplitDefinitionCatalog = {
+  $id: string;
+  documents: Record<string, Record<string, string>>;
+};
+
 export type StandardSchemaFile = SchemaDefinition & {
   $id: string;
   hytale: SchemaHytaleMetadata & { path: string; extension: string };
@@ -1,4 +1,4 @@
-import { readdirSync } from "fs";
+import { existsSync, readdirSync } from "fs";
 import path from "path";
 import { type BasicLogger } from "../shared/commonTypes";
 import {
@@ -11,9 +11,16 @@ import {
 import { safeParseJSONFile } from "../shared/fileUtils";
 import { isObject } from "../shared/typeUtils";
 import { AssetPathMatcher } from "./assetPathMatcher";
-import { type CommonSchemaFile, type StandardSchemaFile } from "./schemaDefinitionTypes";
+import {
+  type CommonSchemaFile,
+  type SplitDefinitionCatalog,
+  type StandardSchemaFile,
+} from "./schemaDefinitionTypes";
 import { schemaDefinitionToAssetDefinition } from "./schemaToFieldResolver";
 
+/** Written by the companion when it splits shared definition documents into per-definition files */
+export const SPLIT_DEFINITION_CATALOG_FILE = "definitionCatalog.json";
+
 export class SchemaRuntime {
   /** maps exact $ref strings to their definitions */
   readonly assetsByRef = new Map<string, AssetDefinition>();
@@ -112,32 +119,31 @@ export class SchemaRuntime {
   private loadAssetDefinitions(): AssetPathMatcher {
     const unhydratedVariants: VariantField[] = [];
     const assetDefinitionsWithPaths: AssetDefinition[] = [];
+    const splitCatalog = this.loadSplitDefinitionCatalog();
+    const splitDirectories = new Set(
+      Object.keys(splitCatalog?.documents ?? {}).map(document => document.replace(/\.json$/, "")),
+    );
 
-    for (const file of readdirSync(this.schemaDir)) {
-      if (!file.endsWith(".json")) {
+    for (const entry of readdirSync(this.schemaDir, { withFileTypes: true })) {
+      const file = entry.name;
+      if (entry.isDirectory() && splitDirectories.has(file)) {
+        // split definitions are loaded through the catalog below
+        continue;
+      }
+      if (!entry.isFile() || !file.endsWith(".json")) {
         this.logger.warn(`Unexpected file in schema directory: ${file}`);
         continue;
       }
+      if (file === SPLIT_DEFINITION_CATALOG_FILE) {
+        continue;
+      }
       if (file === "NPCRole.json" || file === "other.json" || file === "InstanceConfig.json") {
         // TODO implement NPC editor and handle instance config special case (UUID is string | object with no extra information)
         continue;
       }
 
       if (file === "common.json") {
-        const fileContent = safeParseJSONFile(path.join(this.schemaDir, file)) as CommonSchemaFile;
-        for (const [key, value] of Object.entries(fileContent.definitions)) {
-          const ref = `common.json#/definitions/${key}`;
-          const assetDefinition = schemaDefinitionToAssetDefinition(
-            value,
-            unhydratedVariants,
-            this.logger,
-          );
-          if (!assetDefinition) {
-            this.logger.error(`Failed to convert schema definition to asset definition: ${ref}`);
-            continue;
-          }
-          this.assetsByRef.set(ref, assetDefinition);
-        }
+        this.loadCommonDefinitions(file, unhydratedVariants);
       } else {
         const fileContent = safeParseJSONFile(
           path.join(this.schemaDir, file),
@@ -158,11 +164,43 @@ export class SchemaRuntime {
       }
     }
 
+    // split common.json: every definition lives in its own file under the same /definitions/<name> pointer
+    for (const file of new Set(Object.values(splitCatalog?.documents["common.json"] ?? {}))) {
+      this.loadCommonDefinitions(file, unhydratedVariants);
+    }
+
     this.hydrateVariants(unhydratedVariants);
     this.computeNestedRefDependencies(this.assetsByRef);
     return new AssetPathMatcher(assetDefinitionsWithPaths);
   }
 
+  /** @param file - schema directory relative path, e.g. "common.json" or "common/AssetName.json" when split */
+  private loadCommonDefinitions(file: string, unhydratedVariants: VariantField[]): void {
+    const fileContent = safeParseJSONFile(path.join(this.schemaDir, file)) as CommonSchemaFile;
+    for (const [key, value] of Object.entries(fileContent.definitions)) {
+      const ref = `${file}#/definitions/${key}`;
+      const assetDefinition = schemaDefinitionToAssetDefinition(
+        value,
+        unhydratedVariants,
+        this.logger,
+      );
+      if (!assetDefinition) {
+        this.logger.error(`Failed to convert schema definition to asset definition: ${ref}`);
+        continue;
+      }
+      this.assetsByRef.set(ref, assetDefinition);
+    }
+  }
+
+  private loadSplitDefinitionCatalog(): SplitDefinitionCatalog | undefined {
+    if (!existsSync(path.join(this.schemaDir, SPLIT_DEFINITION_CATALOG_FILE))) {
+      return undefined;
+    }
+    return safeParseJSONFile(
+      path.join(this.schemaDir, SPLIT_DEFINITION_CATALOG_FILE),
+    ) as SplitDefinitionCatalog;
+  }
+
   private hydrateVariants(unhydratedVariants: VariantField[]): void {
     // hydrate variants (resolve the identity map and clear unmapped fields)
     for (const variantField of unhydratedVariants) {
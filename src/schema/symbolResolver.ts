@@ -5,6 +5,8 @@ import { indexes, LOGGER } from "../extension";
 import { safeParseJSONFile } from "../shared/fileUtils";
 import {
   type CommonAssetPathsIndexShard,
+  type DictionaryEncodedAssetEntries,
+  type DictionaryEncodedIndexShard,
   type ExportFamilyIndexShard,
   type IndexKind,
   type IndexReference,
@@ -32,7 +34,18 @@ export function loadIndexesFromRoot(dataRoot: string): Map<IndexKind, SymbolInde
     }
     indexes.set(indexKind, new Map<string, IndexShard>());
     for (const file of readdirSync(path.join(indexRoot, directoryName))) {
-      const indexShard = safeParseJSONFile(path.join(indexRoot, directoryName, file)) as IndexShard;
+      if (path.extname(file) !== ".json") {
+        continue;
+      }
+      const indexShard = decodeIndexShard(
+        safeParseJSONFile(path.join(indexRoot, directoryName, file)) as
+          | IndexShard
+          | DictionaryEncodedIndexShard,
+      );
+      if (!indexShard) {
+        LOGGER.warn(`Skipping index shard ${directoryName}/${file} with an unsupported layout`);
+        continue;
+      }
       if (indexShard.indexKind === "registeredAssets") {
         const registeredAssetsShard = indexShard as RegisteredAssetsIndexShard;
         registeredAssetsShard.baseGameFileCount = Object.values(
@@ -45,6 +58,41 @@ export function loadIndexesFromRoot(dataRoot: string): Map<IndexKind, SymbolInde
   return indexes;
 }
 
+/**
+ * Returns the shard with its values in the default layout, decoding the companion's dictionary layout.
+ * Returns undefined for layouts this version cannot read.
+ */
+function decodeIndexShard(
+  shard: IndexShard | DictionaryEncodedIndexShard,
+): IndexShard | undefined {
+  if (!("layout" in shard)) {
+    return shard;
+  }
+
+  const { layout, values, ...rest } = shard;
+  if (layout !== "dictionary") {
+    return undefined;
+  }
+  return { ...rest, values: decodeAssetEntries(values) } as IndexShard;
+}
+
+export function decodeAssetEntries(
+  values: DictionaryEncodedAssetEntries,
+): Record<string, { sourcedFromFile?: string; package?: string }> {
+  const decoded: Record<string, { sourcedFromFile?: string; package?: string }> = {};
+  for (const [name, [packageIndex, directoryIndex, fileName]] of Object.entries(values.entries)) {
+    const entry: { sourcedFromFile?: string; package?: string } = {};
+    if (directoryIndex !== null && fileName !== null) {
+      entry.sourcedFromFile = values.directories[directoryIndex] + fileName;
+    }
+    if (packageIndex !== null) {
+      entry.package = values.packages[packageIndex];
+    }
+    decoded[name] = entry;
+  }
+  return decoded;
+}
+
 export function getValuesByIndexReference(reference: IndexReference): string[] {
   const index = indexes.get(reference.indexKind);
   if (!index) {
@@ -63,6 +63,22 @@ export type ExportFamilyIndexShard = IndexShardBase & {
   >;
 };
 
+/** Values of a registeredAssets or exportFamily shard written with the companion's dictionary layout. */
+export type DictionaryEncodedAssetEntries = {
+  packages: string[];
+  /** directories of sourcedFromFile, each with its trailing separator */
+  directories: string[];
+  /** asset name -> [index into packages, index into directories, file name], null where the entry has none */
+  entries: Record<string, [number | null, number | null, string | null]>;
+};
+
+/** Shard as exported with `"layout": "dictionary"`; the loader decodes it before it is used. */
+export type DictionaryEncodedIndexShard = IndexShardBase & {
+  indexKind: "registeredAssets" | "exportFamily";
+  layout: "dictionary";
+  values: DictionaryEncodedAssetEntries;
+};
+
 export type ReferenceBundleIndexShard = IndexShardBase & {
   indexKind: "referenceBundle";
   key: string;
@@ -10,7 +10,8 @@ import {
     readExportFormatVersion,
     resolveCompanionExportRootFromPatchline,
     resolvePatchlineFromWorkspace,
-    resolveDataRootDir
+    resolveDataRootDir,
+    resolveExportDataRoot
 } from '../utils/hytalePaths';
 
 suite('Hytale Paths Test Suite', () => {
@@ -129,6 +130,58 @@ suite('Hytale Paths Test Suite', () => {
         }
     });
 
+    test('resolveSchemaDataLocationFromPatchline uses the generation directory named by the export manifest', () => {
+        const globalStorageRoot = fs.mkdtempSync(path.join(os.tmpdir(), 'hytale-storage-'));
+        const extensionRoot = fs.mkdtempSync(path.join(os.tmpdir(), 'hytale-extension-'));
+
+        try {
+            const exportRoot = resolveCompanionExportRootFromPatchline(globalStorageRoot, 'release');
+            const generationRoot = path.join(exportRoot, 'generations', '3');
+            fs.mkdirSync(generationRoot, { recursive: true });
+            fs.writeFileSync(
+                path.join(exportRoot, 'export_manifest.json'),
+                JSON.stringify({
+                    exportFormatVersion: EXPECTED_COMPANION_EXPORT_FORMAT_VERSION,
+                    dataDirectory: 'generations/3'
+                }),
+                'utf8'
+            );
+            fs.writeFileSync(path.join(exportRoot, 'schema_mappings.json'), '{}', 'utf8');
+            fs.mkdirSync(path.join(generationRoot, 'schemas'), { recursive: true });
+            fs.mkdirSync(path.join(generationRoot, 'indexes'), { recursive: true });
+
+            const location = resolveDataRootDir(
+                globalStorageRoot,
+                extensionRoot,
+                'release'
+            );
+
+            assert.deepStrictEqual(location, {
+                rootPath: path.resolve(generationRoot),
+                source: 'companion-export'
+            });
+        } finally {
+            fs.rmSync(globalStorageRoot, { recursive: true, force: true });
+            fs.rmSync(extensionRoot, { recursive: true, force: true });
+        }
+    });
+
+    test('resolveExportDataRoot ignores data directories outside the export root', () => {
+        const exportRoot = fs.mkdtempSync(path.join(os.tmpdir(), 'hytale-export-'));
+
+        try {
+            fs.writeFileSync(
+                path.join(exportRoot, 'export_manifest.json'),
+                JSON.stringify({ dataDirectory: '../elsewhere' }),
+                'utf8'
+            );
+
+            assert.strictEqual(resolveExportDataRoot(exportRoot), path.resolve(exportRoot));
+        } finally {
+            fs.rmSync(exportRoot, { recursive: true, force: true });
+        }
+    });
+
     test('resolveSchemaDataLocationFromPatchline falls back to bundled default data when export is missing', () => {
         const globalStorageRoot = fs.mkdtempSync(path.join(os.tmpdir(), 'hytale-storage-'));
         const extensionRoot = fs.mkdtempSync(path.join(os.tmpdir(), 'hytale-extension-'));
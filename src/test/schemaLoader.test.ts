@@ -0,0 +1,76 @@
+import * as assert from "assert";
+import * as fs from "fs";
+import * as os from "os";
+import * as path from "path";
+import { SchemaRuntime, SPLIT_DEFINITION_CATALOG_FILE } from "../schema/schemaLoader";
+import { type BasicLogger } from "../shared/commonTypes";
+
+suite("Schema Loader Test Suite", () => {
+  test("loads exports with split shared definition documents", () => {
+    const schemaDir = fs.mkdtempSync(path.join(os.tmpdir(), "schema-loader-"));
+    const messages: string[] = [];
+    const logger: BasicLogger = {
+      error: message => messages.push(`error: ${message}`),
+      warn: message => messages.push(`warn: ${message}`),
+      info: () => {},
+    };
+    try {
+      writeJson(schemaDir, SPLIT_DEFINITION_CATALOG_FILE, {
+        $id: SPLIT_DEFINITION_CATALOG_FILE,
+        documents: {
+          "common.json": { Vector: "common/Vector.json" },
+          "other.json": { NPC_Variant: "other/NPC_Variant.json" },
+        },
+      });
+      writeJson(schemaDir, "common/Vector.json", {
+        $id: "common/Vector.json",
+        definitions: {
+          Vector: {
+            type: "object",
+            properties: { X: { type: "number" } },
+            hytale: {},
+          },
+        },
+      });
+      writeJson(schemaDir, "other/NPC_Variant.json", {
+        $id: "other/NPC_Variant.json",
+        definitions: {
+          NPC_Variant: { type: "object", properties: {}, hytale: {} },
+        },
+      });
+      writeJson(schemaDir, "Projectile.json", {
+        $id: "Projectile.json",
+        title: "Projectile",
+        type: "object",
+        properties: {
+          Velocity: { $ref: "common/Vector.json#/definitions/Vector" },
+        },
+        hytale: { path: "Projectiles", extension: ".json" },
+      });
+
+      const runtime = new SchemaRuntime(schemaDir, logger);
+
+      assert.deepStrictEqual(messages, []);
+      assert.deepStrictEqual([...runtime.assetsByRef.keys()].sort(), [
+        "Projectile.json#",
+        "common/Vector.json#/definitions/Vector",
+      ]);
+      const velocityX = runtime.resolveFieldByReferencePointer(
+        "Projectile.json#/properties/Velocity/properties/X",
+      );
+      assert.strictEqual(velocityX?.type, "number");
+      assert.strictEqual(
+        runtime.getAssetDefinitionForPath("Server/Projectiles/Arrow.json")?.title,
+        "Projectile",
+      );
+    } finally {
+      fs.rmSync(schemaDir, { recursive: true, force: true });
+    }
+  });
+});
+
+function writeJson(schemaDir: string, relativePath: string, content: unknown): void {
+  const filePath = path.join(schemaDir, relativePath);
+  fs.mkdirSync(path.dirname(filePath), { recursive: true });
+  fs.writeFileSync(filePath, JSON.stringify(content));
+}
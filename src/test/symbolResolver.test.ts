@@ -1,6 +1,12 @@
 import * as assert from "assert";
-import { getCommonAssetPathValues } from "../schema/symbolResolver";
-import { type CommonAssetPathsIndexShard } from "../shared/indexTypes";
+import * as fs from "fs";
+import * as os from "os";
+import * as path from "path";
+import { getCommonAssetPathValues, loadIndexesFromRoot } from "../schema/symbolResolver";
+import {
+  type CommonAssetPathsIndexShard,
+  type RegisteredAssetsIndexShard,
+} from "../shared/indexTypes";
 
 suite("Symbol Resolver Test Suite", () => {
   test("matches common asset roots with trailing slash requests", () => {
@@ -83,4 +89,74 @@ suite("Symbol Resolver Test Suite", () => {
 
     assert.deepStrictEqual(values, ["BlockTextures/Decor/NestedTexture.png"]);
   });
+
+  test("loads JSON shards and skips other files in an index directory", () => {
+    const dataRoot = fs.mkdtempSync(path.join(os.tmpdir(), "symbol-resolver-"));
+    try {
+      const shardDirectory = path.join(dataRoot, "indexes", "registeredAssets");
+      fs.mkdirSync(shardDirectory, { recursive: true });
+      fs.writeFileSync(
+        path.join(shardDirectory, "Item.json"),
+        JSON.stringify({
+          hytaleVersion: "test",
+          generatedAt: "test",
+          indexKind: "registeredAssets",
+          key: "Item",
+          values: {
+            Sword: { sourcedFromFile: "Server/Item/Sword.json", package: "Hytale:Hytale" },
+            Shield: { sourcedFromFile: "Server/Item/Shield.json", package: "Example:Mod" },
+          },
+        }),
+      );
+      fs.writeFileSync(path.join(shardDirectory, "Item.idx"), Buffer.from([0x48, 0x44, 0x54, 0x49]));
+
+      const shards = loadIndexesFromRoot(dataRoot).get("registeredAssets");
+
+      assert.deepStrictEqual([...(shards?.keys() ?? [])], ["Item"]);
+      assert.strictEqual((shards?.get("Item") as RegisteredAssetsIndexShard).baseGameFileCount, 1);
+    } finally {
+      fs.rmSync(dataRoot, { recursive: true, force: true });
+    }
+  });
+
+  test("decodes shards written with the dictionary layout", () => {
+    const dataRoot = fs.mkdtempSync(path.join(os.tmpdir(), "symbol-resolver-"));
+    try {
+      const shardDirectory = path.join(dataRoot, "indexes", "registeredAssets");
+      fs.mkdirSync(shardDirectory, { recursive: true });
+      fs.writeFileSync(
+        path.join(shardDirectory, "Item.json"),
+        JSON.stringify({
+          hytaleVersion: "test",
+          generatedAt: "test",
+          indexKind: "registeredAssets",
+          key: "Item",
+          layout: "dictionary",
+          values: {
+            packages: ["Hytale:Hytale", "Example:Mod"],
+            directories: ["Server/Item/"],
+            entries: {
+              Generated: [null, null, null],
+              Shield: [1, 0, "Shield.json"],
+              Sword: [0, 0, "Sword.json"],
+            },
+          },
+        }),
+      );
+
+      const shard = loadIndexesFromRoot(dataRoot)
+        .get("registeredAssets")
+        ?.get("Item") as RegisteredAssetsIndexShard;
+
+      assert.deepStrictEqual(shard.values, {
+        Generated: {},
+        Shield: { sourcedFromFile: "Server/Item/Shield.json", package: "Example:Mod" },
+        Sword: { sourcedFromFile: "Server/Item/Sword.json", package: "Hytale:Hytale" },
+      });
+      assert.strictEqual("layout" in shard, false);
+      assert.strictEqual(shard.baseGameFileCount, 1);
+    } finally {
+      fs.rmSync(dataRoot, { recursive: true, force: true });
+    }
+  });
 });
@@ -156,6 +156,30 @@ export function readExportFormatVersion(exportManifestPath: string): number | un
   }
 }
 
+/**
+ * Directory holding schemas/ and indexes/ of a companion export. The companion writes each export into its own
+ * generation directory and names it in the manifest as `dataDirectory`; older exports keep them next to the manifest.
+ */
+export function resolveExportDataRoot(companionExportRoot: string): string {
+  const exportRoot = path.resolve(companionExportRoot);
+  try {
+    const parsed = JSON.parse(
+      fs.readFileSync(path.join(exportRoot, EXPORT_MANIFEST_FILE_NAME), "utf8"),
+    );
+    const dataDirectory = parsed?.dataDirectory;
+    if (typeof dataDirectory === "string" && dataDirectory.length > 0) {
+      const dataRoot = path.resolve(exportRoot, dataDirectory);
+      // never follow a data directory outside the export root
+      if (dataRoot.startsWith(exportRoot + path.sep)) {
+        return dataRoot;
+      }
+    }
+  } catch {
+    // missing or unreadable manifest: fall back to the flat layout
+  }
+  return exportRoot;
+}
+
 export function resolveDefaultSchemaDataRoot(extensionPath: string): string {
   return path.join(extensionPath, DEFAULT_SCHEMA_DATA_RELATIVE_PATH);
 }
@@ -168,8 +192,9 @@ export function resolveDataRootDir(
   const companionExportRoot = resolveCompanionExportRootFromPatchline(globalStoragePath, patchline);
   const exportManifestPath = path.join(companionExportRoot, EXPORT_MANIFEST_FILE_NAME);
   const schemaMappingsPath = path.join(companionExportRoot, SCHEMA_MAPPINGS_FILE_NAME);
-  const schemasDirectoryPath = path.join(companionExportRoot, SCHEMAS_DIRECTORY_NAME);
-  const indexesDirectoryPath = path.join(companionExportRoot, INDEXES_DIRECTORY_NAME);
+  const exportDataRoot = resolveExportDataRoot(companionExportRoot);
+  const schemasDirectoryPath = path.join(exportDataRoot, SCHEMAS_DIRECTORY_NAME);
+  const indexesDirectoryPath = path.join(exportDataRoot, INDEXES_DIRECTORY_NAME);
   const exportFormatVersion = readExportFormatVersion(exportManifestPath);
   if (
     exportFormatVersion === EXPECTED_COMPANION_EXPORT_FORMAT_VERSION &&
@@ -178,7 +203,7 @@ export function resolveDataRootDir(
     fs.existsSync(indexesDirectoryPath)
   ) {
     return {
-      rootPath: companionExportRoot,
+      rootPath: exportDataRoot,
       source: "companion-export",
     };
   }